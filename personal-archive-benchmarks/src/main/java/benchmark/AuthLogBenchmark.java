@@ -0,0 +1,32 @@
+package benchmark;
+
+import audit.AuthEvent;
+import audit.AuthLog;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// 请求线程记录一条认证事件的耗时（只到放入环形缓冲区为止，写文件在后台线程）；多个线程同时记录
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class AuthLogBenchmark {
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // AuthLog 初始化时读取该属性
+        System.setProperty("authlog.dir", Files.createTempDirectory("authlog-bench").toString());
+        AuthLog.start();
+    }
+
+    @Benchmark
+    public void record() {
+        AuthLog.record(AuthEvent.LOGIN_FAILED, 42, "alice@example.com", "203.0.113.7");
+    }
+}
@@ -0,0 +1,50 @@
+package benchmark;
+
+import org.mindrot.jbcrypt.BCrypt;
+import util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+// 内嵌 H2（MySQL 兼容模式）中的 users 表；DatabaseUtil 通过 -Ddb.url 指向这里
+final class EmbeddedDatabase {
+
+    static final String URL = "jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    static final String PASSWORD = "s3cret-pass";
+
+    private EmbeddedDatabase() {
+    }
+
+    static String email(int i) {
+        return "user" + i + "@example.com";
+    }
+
+    // 建表并写入 count 个已验证用户，密码哈希统一使用 cost 4，避免登录基准被 BCrypt 主导
+    static void seedUsers(int count) throws SQLException {
+        String hash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(4));
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TABLE IF EXISTS users");
+                stmt.execute("CREATE TABLE users (" +
+                    "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "email VARCHAR(255) UNIQUE NOT NULL, " +
+                    "password_hash VARCHAR(255) NOT NULL, " +
+                    "username VARCHAR(100), " +
+                    "is_verified BOOLEAN DEFAULT FALSE, " +
+                    "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO users (email, password_hash, username, is_verified) VALUES (?, ?, ?, TRUE)")) {
+                for (int i = 1; i <= count; i++) {
+                    pstmt.setString(1, email(i));
+                    pstmt.setString(2, hash);
+                    pstmt.setString(3, "用户" + i);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dto.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// 各接口的请求体解析（含校验）与响应序列化，输出写入复用的缓冲区模拟响应流
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    private static final byte[] REGISTER_BODY = utf8("{\"email\":\"alice@example.com\",\"password\":\"s3cret-pass\",\"username\":\"爱丽丝\"}");
+    private static final byte[] LOGIN_BODY = utf8("{\"email\":\"alice@example.com\",\"password\":\"s3cret-pass\"}");
+    private static final byte[] FORGOT_BODY = utf8("{\"email\":\"alice@example.com\"}");
+    private static final byte[] RESET_BODY = utf8("{\"email\":\"alice@example.com\",\"token\":\"q1w2e3r4t5y6u7i8o9p0a1s2d3f4g5h6j7k8l9z0x1c\",\"newPassword\":\"n3w-pass\"}");
+    private static final byte[] ACHIEVEMENT_BODY = utf8("{\"title\":\"第一次马拉松\",\"date\":\"2024-04-21\","
+        + "\"tags\":\"运动,跑步\",\"description\":\"全程 42.195 公里，用时 4 小时 12 分\",\"photoUrl\":\"/api/user/photos/abc\"}");
+
+    private final ObjectMapper legacyMapper = new ObjectMapper();
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(8192);
+
+    private LoginResponse loginResponse;
+    private AchievementView achievement;
+    private SearchResult searchResult;
+    private StatsView stats;
+
+    @Setup
+    public void setUp() {
+        loginResponse = new LoginResponse(true, "登录成功", new UserView(42, "alice@example.com", "爱丽丝"));
+        achievement = new AchievementView(1001, "第一次马拉松", "全程 42.195 公里，用时 4 小时 12 分", "2024-04-21",
+            List.of("运动", "跑步"), "/api/user/photos/abc");
+        List<AchievementView> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            items.add(new AchievementView(1000 + i, "成就 " + i, "描述 " + i, "2024-04-21", List.of("标签" + i), null));
+        }
+        searchResult = new SearchResult(items, 1, true);
+        stats = new StatsView(120, 18, 35, 230, 1024);
+    }
+
+    @Benchmark
+    public Object registerParse() throws IOException {
+        RegisterRequest request = RegisterRequest.READER.readValue(REGISTER_BODY);
+        request.validate();
+        return request;
+    }
+
+    @Benchmark
+    public int registerRespond() throws IOException {
+        sink.reset();
+        sink.write(Responses.REGISTERED);
+        return sink.size();
+    }
+
+    @Benchmark
+    public Object loginParse() throws IOException {
+        LoginRequest request = LoginRequest.READER.readValue(LOGIN_BODY);
+        request.validate();
+        return request;
+    }
+
+    @Benchmark
+    public int loginRespond() throws IOException {
+        sink.reset();
+        LoginResponse.WRITER.writeValue(sink, loginResponse);
+        return sink.size();
+    }
+
+    // 改造前的写法：解析成 Map、构造 HashMap 再序列化为 String，作为对照
+    @Benchmark
+    public String loginLegacyMap() throws IOException {
+        Map<?, ?> params = legacyMapper.readValue(new String(LOGIN_BODY, StandardCharsets.UTF_8), Map.class);
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", params.get("email") != null);
+        result.put("message", "登录成功");
+        result.put("user", Map.of("id", 42, "email", "alice@example.com", "username", "爱丽丝"));
+        return legacyMapper.writeValueAsString(result);
+    }
+
+    @Benchmark
+    public Object forgotPasswordParse() throws IOException {
+        ForgotPasswordRequest request = ForgotPasswordRequest.READER.readValue(FORGOT_BODY);
+        request.validate();
+        return request;
+    }
+
+    @Benchmark
+    public Object resetPasswordParse() throws IOException {
+        ResetPasswordRequest request = ResetPasswordRequest.READER.readValue(RESET_BODY);
+        request.validate();
+        return request;
+    }
+
+    @Benchmark
+    public Object achievementParse() throws IOException {
+        AchievementRequest request = AchievementRequest.READER.readValue(ACHIEVEMENT_BODY);
+        request.validate();
+        return request;
+    }
+
+    @Benchmark
+    public int achievementRespond() throws IOException {
+        sink.reset();
+        AchievementView.WRITER.writeValue(sink, achievement);
+        return sink.size();
+    }
+
+    @Benchmark
+    public int searchRespond() throws IOException {
+        sink.reset();
+        SearchResult.WRITER.writeValue(sink, searchResult);
+        return sink.size();
+    }
+
+    @Benchmark
+    public int statsRespond() throws IOException {
+        sink.reset();
+        StatsView.WRITER.writeValue(sink, stats);
+        return sink.size();
+    }
+
+    private static byte[] utf8(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
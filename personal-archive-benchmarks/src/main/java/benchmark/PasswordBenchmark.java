@@ -0,0 +1,39 @@
+package benchmark;
+
+import org.mindrot.jbcrypt.BCrypt;
+import org.openjdk.jmh.annotations.*;
+import util.PasswordUtil;
+
+import java.util.concurrent.TimeUnit;
+
+// PasswordUtil 在不同 BCrypt cost 下的耗时（包含提交到哈希线程池的开销）
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PasswordBenchmark {
+
+    @Param({"4", "8", "10", "12"})
+    public int cost;
+
+    private String hash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 每组参数单独 fork，PasswordUtil 初始化时读取该属性
+        System.setProperty("bcrypt.cost", String.valueOf(cost));
+        hash = BCrypt.hashpw("correct horse battery", BCrypt.gensalt(cost));
+    }
+
+    @Benchmark
+    public String hashPassword() {
+        return PasswordUtil.hashPassword("correct horse battery");
+    }
+
+    @Benchmark
+    public boolean checkPassword() {
+        return PasswordUtil.checkPassword("correct horse battery", hash);
+    }
+}
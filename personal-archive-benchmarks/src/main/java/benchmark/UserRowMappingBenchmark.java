@@ -0,0 +1,52 @@
+package benchmark;
+
+import model.User;
+import org.openjdk.jmh.annotations.*;
+import repository.UserRepository;
+import util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// User 行映射：结果集停在同一行上反复映射，只测映射本身
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Ddb.url=" + EmbeddedDatabase.URL, "-Ddb.user=sa", "-Ddb.password="})
+public class UserRowMappingBenchmark {
+
+    private Connection conn;
+    private PreparedStatement pstmt;
+    private ResultSet rs;
+
+    @Setup
+    public void setUp() throws SQLException {
+        EmbeddedDatabase.seedUsers(1);
+        conn = DatabaseUtil.getConnection();
+        pstmt = conn.prepareStatement("SELECT id, email, username, is_verified, password_hash FROM users WHERE id = 1");
+        rs = pstmt.executeQuery();
+        rs.next();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        rs.close();
+        pstmt.close();
+        conn.close();
+    }
+
+    @Benchmark
+    public User profileMapper() throws SQLException {
+        return UserRepository.PROFILE_MAPPER.map(rs);
+    }
+
+    @Benchmark
+    public User authMapper() throws SQLException {
+        return UserRepository.AUTH_MAPPER.map(rs);
+    }
+}
@@ -0,0 +1,52 @@
+package benchmark;
+
+import model.User;
+import org.openjdk.jmh.annotations.*;
+import repository.UserRepository;
+import service.UserService;
+import util.DatabaseUtil;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// 内嵌 H2 上的登录与按 id 取用户；BCrypt cost 固定为 4，结果主要反映缓存、连接池和查询开销
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Ddb.url=" + EmbeddedDatabase.URL, "-Ddb.user=sa", "-Ddb.password=",
+    "-Dbcrypt.cost=4"})
+public class UserServiceBenchmark {
+
+    @Param({"10000"})
+    public int users;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        EmbeddedDatabase.seedUsers(users);
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(1, users + 1);
+    }
+
+    @Benchmark
+    public User loginUser() {
+        return UserService.loginUser(EmbeddedDatabase.email(randomId()), EmbeddedDatabase.PASSWORD);
+    }
+
+    // 经过 UserCache（稳定状态下基本命中）
+    @Benchmark
+    public User getUserById() {
+        return UserService.getUserById(randomId());
+    }
+
+    // 绕过缓存直接查库，对照连接池与查询本身的开销
+    @Benchmark
+    public User getUserByIdUncached() throws SQLException {
+        int id = randomId();
+        return DatabaseUtil.withConnection(conn -> UserRepository.findProfileById(conn, id));
+    }
+}
@@ -0,0 +1,74 @@
+package loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// 按路由记录每次请求的耗时（纳秒），结束后排序计算分位数
+class LatencyStats {
+
+    private static final class Route {
+        private long[] samples = new long[1024];
+        private int count;
+        private int errors;
+        private final Map<String, Integer> errorKinds = new TreeMap<>();
+
+        synchronized void add(long nanos, String error) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+            if (error != null) {
+                errors++;
+                errorKinds.merge(error, 1, Integer::sum);
+            }
+        }
+    }
+
+    private final Map<String, Route> routes = new ConcurrentSkipListMap<>();
+
+    // error 为 null 表示成功，否则是错误类别（如状态码），用于汇总错误原因
+    void record(String route, long nanos, String error) {
+        routes.computeIfAbsent(route, key -> new Route()).add(nanos, error);
+    }
+
+    // 每个路由一行：请求数、错误数、吞吐量（按整个压测时长计算）与 p50/p99/p999
+    void print(double elapsedSeconds) {
+        System.out.printf("%-24s %8s %7s %10s %9s %9s %9s %9s%n",
+            "route", "count", "errors", "req/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)");
+        StringBuilder errorSummary = new StringBuilder();
+        for (Map.Entry<String, Route> entry : routes.entrySet()) {
+            Route route = entry.getValue();
+            long[] sorted;
+            int errors;
+            synchronized (route) {
+                sorted = Arrays.copyOf(route.samples, route.count);
+                errors = route.errors;
+                if (errors > 0) {
+                    errorSummary.append(String.format("  %-24s %s%n", entry.getKey(), route.errorKinds));
+                }
+            }
+            if (sorted.length == 0) {
+                continue;
+            }
+            Arrays.sort(sorted);
+            System.out.printf("%-24s %8d %7d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                entry.getKey(), sorted.length, errors, sorted.length / elapsedSeconds,
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.99)),
+                millis(percentile(sorted, 0.999)), millis(sorted[sorted.length - 1]));
+        }
+        if (errorSummary.length() > 0) {
+            System.out.print("错误分类:" + System.lineSeparator() + errorSummary);
+        }
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,317 @@
+package loadtest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// 端到端压测：在子进程中以内嵌 H2 + 本地 SMTP 桩启动 Main，用虚拟线程模拟用户走完
+// 注册 → 邮箱验证 → 登录 → 获取用户信息 → 退出（部分用户再走忘记密码 → 重置 → 登录），
+// 最后按路由输出吞吐量与 p50/p99/p999 延迟。
+//
+// 用法：java [-Dload.*=...] [-Ddb.poolSize=... -Dserver.maxThreads=... ...] -cp benchmarks.jar loadtest.LoadTest
+//   load.users        计入统计的用户数（默认 500）
+//   load.warmup       预热用户数，不计入统计（默认 50）
+//   load.concurrency  同时进行的用户数（默认 50）
+//   load.sessions     每个用户登录/退出的轮数（默认 3）
+//   load.resetRatio   走忘记密码流程的用户比例（默认 0.2）
+//   load.serverJvmArgs 传给服务端 JVM 的额外参数，空格分隔（如 "-Xmx512m -XX:+UseZGC"）
+//   load.verbose      是否输出服务端启动后的全部日志（默认 false）
+// 以 db. server. bcrypt. session. cache. ratelimit. smtp. 开头的系统属性原样转发给服务端。
+public class LoadTest {
+
+    private static final int USERS = Integer.getInteger("load.users", 500);
+    private static final int WARMUP = Integer.getInteger("load.warmup", 50);
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 50);
+    private static final int SESSIONS = Integer.getInteger("load.sessions", 3);
+    private static final double RESET_RATIO = Double.parseDouble(System.getProperty("load.resetRatio", "0.2"));
+    private static final long MAIL_TIMEOUT_MS = Long.getLong("load.mailTimeoutMs", 30000L);
+    private static final boolean VERBOSE = Boolean.getBoolean("load.verbose");
+    private static final long START_TIMEOUT_SECONDS = 60;
+
+    private static final String[] FORWARDED_PREFIXES = {"db.", "server.", "bcrypt.", "session.", "cache.", "ratelimit.", "smtp."};
+    private static final String[] RATE_LIMITS = {"login.ip", "login.email", "register.ip", "forgot.ip", "forgot.email", "reset.ip"};
+
+    private static final Pattern VERIFY_CODE = Pattern.compile("[?&]code=([^\"&\\s<]+)");
+    private static final Pattern RESET_TOKEN = Pattern.compile("[?&]token=([^\"&\\s<]+)");
+
+    private final HttpClient client = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(10))
+        .build();
+    private final SmtpStub smtp;
+    private final String baseUrl;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicInteger failedFlows = new AtomicInteger();
+
+    private LoadTest(SmtpStub smtp, int port) {
+        this.smtp = smtp;
+        this.baseUrl = "http://127.0.0.1:" + port;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = freePort();
+        try (SmtpStub smtp = new SmtpStub()) {
+            Process server = startServer(port, smtp.port());
+            try {
+                new LoadTest(smtp, port).run();
+            } finally {
+                server.destroy();
+                if (!server.waitFor(10, TimeUnit.SECONDS)) {
+                    server.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    private void run() throws InterruptedException {
+        if (WARMUP > 0) {
+            System.out.println("预热: " + WARMUP + " 个用户");
+            runUsers("warmup", WARMUP, new LatencyStats());
+            failedFlows.set(0);
+        }
+
+        System.out.println("压测: " + USERS + " 个用户，并发 " + CONCURRENCY + "，每人 " + SESSIONS
+            + " 轮登录，重置密码比例 " + RESET_RATIO);
+        LatencyStats stats = new LatencyStats();
+        long start = System.nanoTime();
+        runUsers("run", USERS, stats);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        System.out.println();
+        stats.print(elapsed);
+        System.out.printf("%n耗时 %.1f 秒，流程失败 %d / %d，收到邮件 %d 封%n",
+            elapsed, failedFlows.get(), USERS, smtp.received());
+    }
+
+    // 闭环模型：同时最多 CONCURRENCY 个用户在跑，一个结束再放下一个进来
+    private void runUsers(String phase, int count, LatencyStats stats) throws InterruptedException {
+        Semaphore slots = new Semaphore(CONCURRENCY);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < count; i++) {
+                slots.acquire();
+                String email = "load-" + runId + "-" + phase + "-" + i + "@example.com";
+                executor.execute(() -> {
+                    try {
+                        if (!userFlow(email, stats)) {
+                            failedFlows.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+        }
+    }
+
+    // 一个用户的完整流程；任一步失败即终止并返回 false
+    private boolean userFlow(String email, LatencyStats stats) throws InterruptedException {
+        String password = "Passw0rd-" + ThreadLocalRandom.current().nextInt(1_000_000);
+        if (postJson(stats, "/api/register",
+                "{\"email\":\"" + email + "\",\"password\":\"" + password + "\",\"username\":\"load\"}") == null) {
+            return false;
+        }
+        String code = awaitLink(email, VERIFY_CODE);
+        if (code == null) {
+            return false;
+        }
+        HttpResponse<String> verified = send(stats, "GET /verify", HttpRequest.newBuilder(
+            uri("/verify?email=" + encode(email) + "&code=" + code)).GET().build());
+        if (verified == null || !verified.body().contains("验证成功")) {
+            return false;
+        }
+
+        for (int i = 0; i < SESSIONS; i++) {
+            if (!session(stats, email, password)) {
+                return false;
+            }
+        }
+
+        if (ThreadLocalRandom.current().nextDouble() < RESET_RATIO) {
+            if (postJson(stats, "/api/forgot-password", "{\"email\":\"" + email + "\"}") == null) {
+                return false;
+            }
+            String token = awaitLink(email, RESET_TOKEN);
+            if (token == null) {
+                return false;
+            }
+            String newPassword = password + "-new";
+            if (postJson(stats, "/api/reset-password", "{\"email\":\"" + email + "\",\"token\":\"" + token
+                    + "\",\"newPassword\":\"" + newPassword + "\"}") == null) {
+                return false;
+            }
+            return session(stats, email, newPassword);
+        }
+        return true;
+    }
+
+    // 登录 → /api/user → 退出
+    private boolean session(LatencyStats stats, String email, String password) {
+        HttpResponse<String> login = postJson(stats, "/api/login",
+            "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}");
+        String cookie = login == null ? null : sessionCookie(login);
+        if (cookie == null) {
+            return false;
+        }
+        HttpResponse<String> user = send(stats, "GET /api/user",
+            HttpRequest.newBuilder(uri("/api/user")).header("Cookie", cookie).GET().build());
+        if (user == null) {
+            return false;
+        }
+        return send(stats, "POST /api/logout", HttpRequest.newBuilder(uri("/api/logout"))
+            .header("Cookie", cookie).POST(HttpRequest.BodyPublishers.noBody()).build()) != null;
+    }
+
+    private HttpResponse<String> postJson(LatencyStats stats, String path, String json) {
+        return send(stats, "POST " + path, HttpRequest.newBuilder(uri(path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(json)).build());
+    }
+
+    // 发送并计时；非 2xx 或 JSON 中 success 为 false 记为错误并返回 null。
+    // 错误按状态码分类，"200 failed" 表示业务失败，"io" 表示连接错误
+    private HttpResponse<String> send(LatencyStats stats, String route, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            long elapsed = System.nanoTime() - start;
+            String error = null;
+            if (response.statusCode() / 100 != 2) {
+                error = String.valueOf(response.statusCode());
+            } else if (response.body().contains("\"success\":false")) {
+                error = response.statusCode() + " failed";
+            }
+            stats.record(route, elapsed, error);
+            return error == null ? response : null;
+        } catch (IOException e) {
+            stats.record(route, System.nanoTime() - start, "io");
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private String awaitLink(String email, Pattern pattern) throws InterruptedException {
+        String content = smtp.await(email, MAIL_TIMEOUT_MS);
+        if (content == null) {
+            System.err.println("等待邮件超时: " + email);
+            return null;
+        }
+        Matcher matcher = pattern.matcher(content);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String sessionCookie(HttpResponse<String> response) {
+        for (String header : response.headers().allValues("Set-Cookie")) {
+            if (header.startsWith("SID=")) {
+                int end = header.indexOf(';');
+                return end < 0 ? header : header.substring(0, end);
+            }
+        }
+        return null;
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    // 在独立 JVM 中启动服务端，避免压测客户端与服务端共享堆和 GC
+    private static Process startServer(int port, int smtpPort) throws IOException, InterruptedException {
+        Map<String, String> props = new LinkedHashMap<>();
+        props.put("db.url", "jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=YEAR,VALUE;DB_CLOSE_DELAY=-1");
+        props.put("db.user", "sa");
+        props.put("db.password", "");
+        props.put("server.port", String.valueOf(port));
+        props.put("smtp.host", "127.0.0.1");
+        props.put("smtp.port", String.valueOf(smtpPort));
+        props.put("smtp.username", "");
+        props.put("smtp.starttls", "false");
+        // 所有请求来自同一个 IP，默认关闭认证接口限流
+        for (String limit : RATE_LIMITS) {
+            props.put("ratelimit." + limit, "0");
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            for (String prefix : FORWARDED_PREFIXES) {
+                if (name.startsWith(prefix)) {
+                    props.put(name, System.getProperty(name));
+                }
+            }
+        }
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        String jvmArgs = System.getProperty("load.serverJvmArgs", "").trim();
+        if (!jvmArgs.isEmpty()) {
+            command.addAll(Arrays.asList(jvmArgs.split("\\s+")));
+        }
+        // 按 UTF-8 读取服务端输出，以识别启动完成的日志
+        command.add("-Dstdout.encoding=UTF-8");
+        command.add("-Dstderr.encoding=UTF-8");
+        for (Map.Entry<String, String> prop : props.entrySet()) {
+            command.add("-D" + prop.getKey() + "=" + prop.getValue());
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("Main1.Main");
+
+        // 会话快照、照片等文件写到临时目录
+        Path workDir = Files.createTempDirectory("loadtest-");
+        Process process = new ProcessBuilder(command).directory(workDir.toFile()).redirectErrorStream(true).start();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread.ofPlatform().daemon().name("server-output").start(() -> {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // 启动完成后的服务端日志（如每封邮件的发送记录）只在 load.verbose 时输出
+                    if (started.getCount() > 0 || VERBOSE) {
+                        System.out.println("[server] " + line);
+                    }
+                    if (line.startsWith("服务器启动成功")) {
+                        started.countDown();
+                    }
+                }
+            } catch (IOException e) {
+                // 子进程退出
+            }
+        });
+        if (!started.await(START_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("服务端启动超时");
+        }
+        return process;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package loadtest;
+
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 本地 SMTP 桩：接受所有邮件，按收件人放入各自的收件箱，压测线程从中取出验证/重置链接
+class SmtpStub implements Closeable {
+
+    private final ServerSocket server;
+    private final Map<String, LinkedBlockingQueue<String>> mailboxes = new ConcurrentHashMap<>();
+    private final AtomicLong received = new AtomicLong();
+
+    SmtpStub() throws IOException {
+        server = new ServerSocket(0);
+        Thread.ofVirtual().name("smtp-stub").start(this::acceptLoop);
+    }
+
+    int port() {
+        return server.getLocalPort();
+    }
+
+    long received() {
+        return received.get();
+    }
+
+    // 等待发给 email 的下一封邮件，返回解码后的正文；超时返回 null
+    String await(String email, long timeoutMs) throws InterruptedException {
+        return mailbox(email).poll(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private LinkedBlockingQueue<String> mailbox(String email) {
+        return mailboxes.computeIfAbsent(email.toLowerCase(), key -> new LinkedBlockingQueue<>());
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread.ofVirtual().start(() -> handle(socket));
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    System.err.println("SMTP 桩接受连接失败: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.ISO_8859_1)) {
+            reply(out, "220 localhost stub");
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase() : line.toUpperCase();
+                switch (command) {
+                    case "EHLO":
+                    case "HELO":
+                        reply(out, "250 localhost");
+                        break;
+                    case "DATA":
+                        reply(out, "354 end with <CRLF>.<CRLF>");
+                        deliver(readData(in));
+                        reply(out, "250 OK");
+                        break;
+                    case "QUIT":
+                        reply(out, "221 bye");
+                        return;
+                    default:
+                        // MAIL / RCPT / RSET / NOOP 一律接受，收件人以邮件头为准
+                        reply(out, "250 OK");
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("SMTP 桩连接异常: " + e.getMessage());
+        }
+    }
+
+    private static String readData(BufferedReader in) throws IOException {
+        StringBuilder data = new StringBuilder(2048);
+        String line;
+        while ((line = in.readLine()) != null && !line.equals(".")) {
+            // 去掉点填充
+            data.append(line.startsWith("..") ? line.substring(1) : line).append("\r\n");
+        }
+        return data.toString();
+    }
+
+    private void deliver(String raw) {
+        try {
+            MimeMessage message = new MimeMessage(null, new ByteArrayInputStream(raw.getBytes(StandardCharsets.ISO_8859_1)));
+            String to = message.getHeader("To", null);
+            Object content = message.getContent();
+            if (to != null) {
+                mailbox(to.trim()).add(String.valueOf(content));
+                received.incrementAndGet();
+            }
+        } catch (MessagingException | IOException e) {
+            System.err.println("SMTP 桩解析邮件失败: " + e.getMessage());
+        }
+    }
+
+    private static void reply(Writer out, String line) throws IOException {
+        out.write(line);
+        out.write("\r\n");
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+    }
+}
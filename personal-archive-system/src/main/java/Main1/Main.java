@@ -1,42 +1,149 @@
 package Main1;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import audit.AuthEvent;
+import audit.AuthLog;
+import audit.AuthLogReader;
+import dto.AchievementRequest;
+import dto.AchievementView;
+import dto.ForgotPasswordRequest;
+import dto.LoginRequest;
+import dto.LoginResponse;
+import dto.MessageResponse;
+import dto.PhotoUploadResponse;
+import dto.RegisterRequest;
+import dto.ResetPasswordRequest;
+import dto.Responses;
+import dto.SearchResult;
+import dto.StatsView;
+import dto.UserView;
+import dto.ValidationException;
 import model.User;
+import model.Achievement;
+import repository.SchemaMigrations;
+import repository.StatsRepository;
+import service.AchievementService;
+import service.ChangeFeed;
+import service.EmailDispatcher;
+import service.EmailFilter;
+import service.EmailNotVerifiedException;
+import service.PhotoService;
+import service.SearchService;
+import service.StatsService;
+import service.TokenService;
+import service.UserBulkService;
 import service.UserService;
+import service.UserVersions;
+import session.SessionManager;
+import util.BlobStore;
+import util.Conditional;
 import util.DatabaseUtil;
-import spark.Session;
+import util.FileSender;
+import util.Json;
+import util.Metrics;
+import util.PayloadTooLargeException;
+import util.RateLimiter;
+import util.ResponseCompression;
+import util.RouteMetrics;
+import util.ServerBusyException;
+import util.StartupReport;
+import util.StaticAssets;
+import util.VirtualThreadJetty;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 import static spark.Spark.*;
 
 public class Main {
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int RATE_LIMIT_KEYS = Integer.getInteger("ratelimit.maxKeys", 100000);
+    private static final boolean TRUST_PROXY = Boolean.getBoolean("ratelimit.trustProxy");
+    // 客户端与本服务之间可信代理的层数，每层代理在 X-Forwarded-For 末尾追加一个地址
+    private static final int TRUSTED_HOPS = Math.max(1, Integer.getInteger("ratelimit.trustedHops", 1));
+    private static final boolean VIRTUAL_THREADS = Boolean.getBoolean("server.virtualThreads");
+    private static final boolean GZIP = Boolean.parseBoolean(System.getProperty("gzip.enabled", "true"));
+    private static final String READ_PRIMARY_COOKIE = "RP";
+    // /metrics 只对带 Authorization: Bearer <metrics.token> 的请求，或直接来自 metrics.allow 中地址（默认本机）的请求开放
+    private static final byte[] METRICS_TOKEN = System.getProperty("metrics.token", "").getBytes(StandardCharsets.UTF_8);
+    private static final Set<String> METRICS_ALLOW =
+        Set.copyOf(Arrays.asList(System.getProperty("metrics.allow", "127.0.0.1,0:0:0:0:0:0:0:1,::1").trim().split("\\s*,\\s*")));
+    private static final String AUTH_EVENTS_USAGE =
+        "auth-events [--type 事件] [--email 邮箱] [--user 用户id] [--since yyyy-MM-dd] [--dir 目录]";
     
     public static void main(String[] args) {
-        // 第一步：配置端口
-        port(4567);
+        StartupReport.start();
+        // 命令行工具：import-users / export-users，执行完即退出，不启动服务器
+        if (args.length > 0) {
+            System.exit(runCommand(args));
+        }
+
+        // 第一步：配置端口与 Jetty 线程池（默认值与 Spark 相同），压测时用 -Dserver.* 调整；
+        // -Dserver.virtualThreads=true 时每个请求在虚拟线程上执行，线程池只负责网络收发；JSON 响应默认 gzip 压缩
+        if (VIRTUAL_THREADS) {
+            VirtualThreadJetty.install();
+        }
+        if (GZIP) {
+            ResponseCompression.install();
+        }
+        port(Integer.getInteger("server.port", 4567));
+        threadPool(Integer.getInteger("server.maxThreads", 200), Integer.getInteger("server.minThreads", 8), 60000);
         
-        // 第二步：配置静态文件目录（必须放在路由之前）
-        staticFiles.location("/public");
-        staticFiles.expireTime(600L);
+        // 第二步：在后台建立连接池、执行表结构迁移，与下面的预热和 Jetty 启动并行
+        Thread database = new Thread(Main::startDatabase, "db-init");
+        database.start();
+
+        // 第三步：端口开放之前加载静态资源（加指纹、预压缩，由最后注册的兜底路由提供），并预热 JSON 与 BCrypt
+        long phase = System.nanoTime();
+        StaticAssets.load("/public");
+        StartupReport.record("静态资源", phase);
+        phase = System.nanoTime();
+        WarmUp.json();
+        WarmUp.bcrypt();
+        StartupReport.record("预热", phase);
+        SessionManager.start();
+        AuthLog.start();
         
-        // 第三步：启用 CORS
+        // 第四步：请求计时（最先执行的过滤器），启用 CORS；注册第一个过滤器时 Spark 开始在后台启动 Jetty
+        long jettyStarted = System.nanoTime();
+        before((request, response) -> RouteMetrics.start());
         enableCORS();
-        
-        // 第四步：初始化数据库
-        initDatabase();
-        
+        // 数据库不可用时直接退出，不留下一个只会返回 500 的实例
+        if (!awaitDatabase(database)) {
+            System.exit(1);
+        }
+
         // 第五步：全局前置过滤器
         before((request, response) -> {
             response.type("application/json");
         });
+        if (DatabaseUtil.hasReplicas()) {
+            readYourWrites();
+        }
+        
+        // 第六步：认证接口限流（按 IP 与邮箱分别计数），可用 -Dratelimit.<接口>.<ip|email>=次数/秒数 调整
+        rateLimit("/api/login", "login", "30/60", "10/300");
+        rateLimit("/api/register", "register", "10/3600", null);
+        rateLimit("/api/forgot-password", "forgot", "10/3600", "3/900");
+        rateLimit("/api/reset-password", "reset", "20/600", null);
         
-        // 第六步：认证过滤器
+        // 第七步：认证过滤器
         before("/api/*", (request, response) -> {
             String path = request.pathInfo();
             if (!path.startsWith("/api/login") && 
@@ -45,17 +152,229 @@ public class Main {
                 !path.startsWith("/api/reset-password") &&
                 !path.equals("/api/user")) {
                 
-                User user = request.session().attribute("user");
-                if (user == null) {
-                    halt(401, "{\"error\": \"请先登录\"}");
+                if (SessionManager.currentUserId(request) == null) {
+                    Json.send(response, 401, Responses.NOT_LOGGED_IN);
+                    halt(401);
                 }
             }
         });
         
-        // 第七步：注册路由（最后一步）
+        // 第八步：注册路由（最后一步）
         setupRoutes();
         
-        System.out.println("服务器启动成功：http://localhost:4567");
+        // 无论正常返回、halt 还是异常都会执行，按路由模板记录耗时和错误数
+        afterAfter((request, response) -> RouteMetrics.finish(request.requestMethod(), request.pathInfo(),
+                response.raw().getStatus()));
+        
+        awaitInitialization();
+        StartupReport.record("Jetty 与路由", jettyStarted);
+        RouteMetrics.register(routes());
+        System.out.println("服务器启动成功：http://localhost:" + port());
+        StartupReport.print();
+        if (Boolean.getBoolean("startup.exitAfterStart")) {
+            // CDS 归档的训练运行：走完启动流程即退出，退出时 JVM 写出已加载类的归档
+            System.exit(0);
+        }
+    }
+
+    private static volatile boolean databaseReady;
+
+    private static void startDatabase() {
+        long phase = System.nanoTime();
+        try {
+            initDatabase();
+        } catch (SQLException e) {
+            // 连不上数据库或表结构迁移失败：databaseReady 保持 false，主线程随后退出
+            System.err.println("数据库表初始化失败: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        } catch (RuntimeException | Error e) {
+            // 连接池创建失败（地址、驱动或账号错误）
+            System.err.println("数据库连接失败: " + e);
+            e.printStackTrace();
+            return;
+        }
+        EmailDispatcher.start();
+        TokenService.startReaper();
+        BlobStore.cleanTemp();
+        StartupReport.record("数据库", phase);
+        // 加载完成前注册时逐个查库，不阻塞启动
+        new Thread(EmailFilter::load, "email-filter-load").start();
+        databaseReady = true;
+        if (Boolean.getBoolean("search.reindex")) {
+            new Thread(SearchService::reindexAll, "search-reindex").start();
+        }
+        if (Boolean.getBoolean("stats.rebuild")) {
+            new Thread(StatsService::rebuildAll, "stats-rebuild").start();
+        }
+    }
+    
+    // 用法：import-users <文件|-> [csv|jsonl]、export-users <文件|-> [csv|jsonl]，"-" 表示标准输入/输出
+    private static int runCommand(String[] args) {
+        String command = args[0];
+        if (command.equals("auth-events")) {
+            return authEvents(args);
+        }
+        if (!command.equals("import-users") && !command.equals("export-users") || args.length < 2) {
+            System.err.println("用法: import-users <文件|-> [csv|jsonl]、export-users <文件|-> [csv|jsonl] 或 "
+                + AUTH_EVENTS_USAGE);
+            return 2;
+        }
+        String path = args[1];
+        String format = args.length > 2 ? args[2].toLowerCase(Locale.ROOT) : UserBulkService.formatOf(path);
+        if (!format.equals(UserBulkService.CSV) && !format.equals(UserBulkService.JSONL)) {
+            System.err.println("不支持的格式: " + format);
+            return 2;
+        }
+
+        try {
+            initDatabase();
+            if (command.equals("import-users")) {
+                // 发送线程在导入期间一并工作；进程退出时未发完的邮件留在发件箱，由服务器继续发送
+                EmailDispatcher.start();
+                try (InputStream in = path.equals("-") ? System.in : Files.newInputStream(Path.of(path))) {
+                    UserBulkService.ImportResult result = UserBulkService.importUsers(in, format);
+                    System.err.println("导入完成: 导入 " + result.imported + "，跳过 " + result.skipped + "，无效 " + result.invalid);
+                }
+            } else {
+                try (OutputStream out = path.equals("-") ? System.out : Files.newOutputStream(Path.of(path))) {
+                    UserBulkService.exportUsers(out, format);
+                }
+            }
+            return 0;
+        } catch (IOException | SQLException e) {
+            System.err.println("批量" + (command.equals("import-users") ? "导入" : "导出") + "失败: " + e.getMessage());
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    // 按条件把认证日志输出为 JSONL（不需要数据库）
+    private static int authEvents(String[] args) {
+        AuthEvent type = null;
+        String email = null;
+        int userId = 0;
+        long since = 0;
+        Path dir = AuthLog.directory();
+        try {
+            for (int i = 1; i < args.length; i += 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("缺少参数值: " + args[i]);
+                }
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--type":
+                        type = AuthEvent.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case "--email":
+                        email = value;
+                        break;
+                    case "--user":
+                        userId = Integer.parseInt(value);
+                        break;
+                    case "--since":
+                        since = LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                        break;
+                    case "--dir":
+                        dir = Path.of(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知参数: " + args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.err.println("用法: " + AUTH_EVENTS_USAGE);
+            return 2;
+        }
+
+        try {
+            long count = AuthLogReader.export(dir, type, email, userId, since, System.out);
+            System.out.flush();
+            System.err.println("共 " + count + " 条事件");
+            return 0;
+        } catch (IOException e) {
+            System.err.println("读取认证日志失败: " + e.getMessage());
+            e.printStackTrace();
+            return 1;
+        }
+    }
+
+    // 配置了只读副本时：写请求（以及会修改数据的 GET /verify）给客户端设置一个短期 Cookie，带着它的请求在有效期内只读主库，
+    // 避免副本延迟导致刚注册、刚修改的数据读不到
+    private static void readYourWrites() {
+        int seconds = Integer.getInteger("db.readYourWritesSeconds", 5);
+        before((request, response) -> {
+            DatabaseUtil.readFromPrimary(request.cookie(READ_PRIMARY_COOKIE) != null);
+            String method = request.requestMethod();
+            boolean writes = method.equals("POST") || method.equals("PUT") || method.equals("PATCH")
+                || method.equals("DELETE") || request.pathInfo().equals("/verify");
+            if (writes) {
+                response.cookie("/", READ_PRIMARY_COOKIE, "1", seconds, request.raw().isSecure(), true);
+            }
+        });
+        afterAfter((request, response) -> DatabaseUtil.readFromPrimary(false));
+    }
+
+    private static void rateLimit(String path, String name, String ipSpec, String emailSpec) {
+        RateLimiter byIp = RateLimiter.fromProperty("ratelimit." + name + ".ip", ipSpec, RATE_LIMIT_KEYS);
+        RateLimiter byEmail = emailSpec == null ? null
+                : RateLimiter.fromProperty("ratelimit." + name + ".email", emailSpec, RATE_LIMIT_KEYS);
+        before(path, (request, response) -> {
+            if (!"POST".equals(request.requestMethod())) {
+                return;
+            }
+            String ip = clientIp(request);
+            String email = null;
+            long retryAfter = byIp == null ? 0 : byIp.acquire(ip);
+            if (retryAfter == 0 && byEmail != null) {
+                email = Json.peekField(request.bodyAsBytes(), "email");
+                if (email != null) {
+                    retryAfter = byEmail.acquire(email.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+            if (retryAfter > 0) {
+                AuthLog.record(AuthEvent.RATE_LIMITED, 0, email, ip);
+                response.header("Retry-After", String.valueOf(retryAfter));
+                Json.send(response, 429, Responses.TOO_MANY_REQUESTS);
+                halt(429);
+            }
+        });
+    }
+    
+    // 部署在反向代理之后时用 -Dratelimit.trustProxy=true 读取 X-Forwarded-For。
+    // 左侧的地址由客户端自己填写，不可信；从右往左数第 ratelimit.trustedHops 个才是最外层可信代理看到的客户端地址
+    private static String clientIp(spark.Request request) {
+        if (TRUST_PROXY) {
+            Enumeration<String> headers = request.raw().getHeaders("X-Forwarded-For");
+            List<String> addresses = new ArrayList<>();
+            while (headers != null && headers.hasMoreElements()) {
+                for (String address : headers.nextElement().split(",")) {
+                    if (!address.isBlank()) {
+                        addresses.add(address.trim());
+                    }
+                }
+            }
+            if (!addresses.isEmpty()) {
+                // 地址数少于代理层数时，全部地址都由可信代理追加，取最左边的
+                return addresses.get(Math.max(0, addresses.size() - TRUSTED_HOPS));
+            }
+        }
+        return request.ip();
+    }
+    
+    private static boolean metricsAllowed(spark.Request request) {
+        String authorization = request.headers("Authorization");
+        if (METRICS_TOKEN.length > 0 && authorization != null && authorization.startsWith("Bearer ")) {
+            byte[] token = authorization.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8);
+            // 按固定时间比较，避免逐字节猜出令牌
+            return MessageDigest.isEqual(token, METRICS_TOKEN);
+        }
+        // 经反向代理转发的请求，连接地址是代理本身（常在本机），不按地址放行
+        if (request.headers("X-Forwarded-For") != null || request.headers("Forwarded") != null) {
+            return false;
+        }
+        return METRICS_ALLOW.contains(request.raw().getRemoteAddr());
     }
     
     private static void enableCORS() {
@@ -83,84 +402,58 @@ public class Main {
     private static void setupRoutes() {
         // 测试接口
         get("/api/test", (request, response) -> {
-            return "{\"message\": \"服务器运行正常\"}";
+            return Json.send(response, 200, Responses.SERVER_OK);
         });
         
         // 注册接口
         post("/api/register", (request, response) -> {
             try {
-                Map<String, String> params = objectMapper.readValue(request.body(), Map.class);
-                String email = params.get("email");
-                String password = params.get("password");
-                String username = params.get("username");
-                
-                Map<String, Object> result = new HashMap<>();
-                
-                if (email == null || password == null || username == null) {
-                    result.put("success", false);
-                    result.put("message", "请填写所有必填字段");
-                    return objectMapper.writeValueAsString(result);
-                }
-                
-                if (UserService.registerUser(email, password, username)) {
-                    result.put("success", true);
-                    result.put("message", "注册成功，请查收验证邮件");
-                } else {
-                    result.put("success", false);
-                    result.put("message", "注册失败，邮箱可能已被使用");
+                RegisterRequest params = Json.read(request, RegisterRequest.READER);
+                params.validate();
+                switch (UserService.registerUser(params.email(), params.password(), params.username())) {
+                    case REGISTERED:
+                        AuthLog.record(AuthEvent.REGISTERED, 0, params.email(), clientIp(request));
+                        return Json.send(response, 200, Responses.REGISTERED);
+                    case EMAIL_TAKEN:
+                        AuthLog.record(AuthEvent.REGISTER_EMAIL_TAKEN, 0, params.email(), clientIp(request));
+                        return Json.send(response, 200, Responses.EMAIL_TAKEN);
+                    default:
+                        return Json.send(response, 200, Responses.REGISTER_FAILED);
                 }
-                
-                return objectMapper.writeValueAsString(result);
-            } catch (Exception e) {
-                response.status(400);
-                return "{\"success\": false, \"message\": \"请求格式错误\"}";
+            } catch (ValidationException e) {
+                return fail(response, 200, e.getMessage());
+            } catch (ServerBusyException e) {
+                return serverBusy(response);
+            } catch (IOException e) {
+                return Json.send(response, 400, Responses.BAD_REQUEST);
             }
         });
         
         // 登录接口
         post("/api/login", (request, response) -> {
+            String email = null;
             try {
-                Map<String, String> params = objectMapper.readValue(request.body(), Map.class);
-                String email = params.get("email");
-                String password = params.get("password");
-                
-                Map<String, Object> result = new HashMap<>();
-                
-                if (email == null || password == null) {
-                    result.put("success", false);
-                    result.put("message", "请填写邮箱和密码");
-                    return objectMapper.writeValueAsString(result);
-                }
-                
-                User user = UserService.loginUser(email, password);
-                
-                if (user != null) {
-                    Session session = request.session(true);
-                    session.attribute("user", user);
-                    
-                    result.put("success", true);
-                    result.put("message", "登录成功");
-                    result.put("user", Map.of(
-                        "id", user.getId(),
-                        "email", user.getEmail(),
-                        "username", user.getUsername()
-                    ));
-                } else {
-                    result.put("success", false);
-                    result.put("message", "登录失败，请检查邮箱和密码");
-                }
-                
-                return objectMapper.writeValueAsString(result);
-            } catch (Exception e) {
-                response.status(400);
-                Map<String, Object> result = new HashMap<>();
-                result.put("success", false);
-                result.put("message", e.getMessage());
-                try {
-                    return objectMapper.writeValueAsString(result);
-                } catch (Exception ex) {
-                    return "{\"success\": false, \"message\": \"系统错误\"}";
+                LoginRequest params = Json.read(request, LoginRequest.READER);
+                params.validate();
+                email = params.email();
+                User user = UserService.loginUser(email, params.password());
+                if (user == null) {
+                    AuthLog.record(AuthEvent.LOGIN_FAILED, 0, email, clientIp(request));
+                    return Json.send(response, 200, Responses.LOGIN_FAILED);
                 }
+                SessionManager.login(request, response, user.getId());
+                AuthLog.record(AuthEvent.LOGIN_SUCCESS, user.getId(), email, clientIp(request));
+                return Json.send(response, 200, LoginResponse.WRITER,
+                        new LoginResponse(true, "登录成功", UserView.of(user)));
+            } catch (ValidationException e) {
+                return fail(response, 200, e.getMessage());
+            } catch (ServerBusyException e) {
+                return serverBusy(response);
+            } catch (IOException e) {
+                return Json.send(response, 400, Responses.BAD_REQUEST);
+            } catch (EmailNotVerifiedException e) {
+                AuthLog.record(AuthEvent.LOGIN_UNVERIFIED, 0, email, clientIp(request));
+                return Json.send(response, 400, Responses.EMAIL_NOT_VERIFIED);
             }
         });
         
@@ -174,11 +467,13 @@ public class Main {
             }
             
             if (UserService.verifyEmail(email, code)) {
+                AuthLog.record(AuthEvent.VERIFY_SUCCESS, 0, email, clientIp(request));
                 return "<html><body>" +
                        "<h3>邮箱验证成功！</h3>" +
                        "<p>您的邮箱已成功验证，现在可以<a href='/login.html'>登录</a>系统了。</p>" +
                        "</body></html>";
             } else {
+                AuthLog.record(AuthEvent.VERIFY_FAILED, 0, email, clientIp(request));
                 return "<html><body>" +
                        "<h3>邮箱验证失败</h3>" +
                        "<p>验证链接无效或已过期，请重新注册或联系管理员。</p>" +
@@ -189,29 +484,15 @@ public class Main {
         // 请求重置密码
         post("/api/forgot-password", (request, response) -> {
             try {
-                Map<String, String> params = objectMapper.readValue(request.body(), Map.class);
-                String email = params.get("email");
-                
-                Map<String, Object> result = new HashMap<>();
-                
-                if (email == null) {
-                    result.put("success", false);
-                    result.put("message", "请输入邮箱地址");
-                    return objectMapper.writeValueAsString(result);
-                }
-                
-                if (UserService.generateResetToken(email)) {
-                    result.put("success", true);
-                    result.put("message", "重置链接已发送到您的邮箱");
-                } else {
-                    result.put("success", false);
-                    result.put("message", "发送失败，请检查邮箱地址");
-                }
-                
-                return objectMapper.writeValueAsString(result);
-            } catch (Exception e) {
-                response.status(400);
-                return "{\"success\": false, \"message\": \"请求格式错误\"}";
+                ForgotPasswordRequest params = Json.read(request, ForgotPasswordRequest.READER);
+                params.validate();
+                boolean sent = UserService.generateResetToken(params.email());
+                AuthLog.record(AuthEvent.RESET_REQUESTED, 0, params.email(), clientIp(request));
+                return Json.send(response, 200, sent ? Responses.RESET_LINK_SENT : Responses.RESET_LINK_FAILED);
+            } catch (ValidationException e) {
+                return fail(response, 200, e.getMessage());
+            } catch (IOException e) {
+                return Json.send(response, 400, Responses.BAD_REQUEST);
             }
         });
         
@@ -260,91 +541,313 @@ public class Main {
         // 执行密码重置
         post("/api/reset-password", (request, response) -> {
             try {
-                Map<String, String> params = objectMapper.readValue(request.body(), Map.class);
-                String email = params.get("email");
-                String token = params.get("token");
-                String newPassword = params.get("newPassword");
-                
-                Map<String, Object> result = new HashMap<>();
-                
-                if (email == null || token == null || newPassword == null) {
-                    result.put("success", false);
-                    result.put("message", "参数不完整");
-                    return objectMapper.writeValueAsString(result);
-                }
-                
-                if (newPassword.length() < 6) {
-                    result.put("success", false);
-                    result.put("message", "密码长度至少6位");
-                    return objectMapper.writeValueAsString(result);
-                }
-                
-                if (UserService.resetPassword(email, token, newPassword)) {
-                    result.put("success", true);
-                    result.put("message", "密码重置成功");
-                } else {
-                    result.put("success", false);
-                    result.put("message", "重置失败，链接可能已过期");
-                }
-                
-                return objectMapper.writeValueAsString(result);
-            } catch (Exception e) {
-                response.status(400);
-                return "{\"success\": false, \"message\": \"请求格式错误\"}";
+                ResetPasswordRequest params = Json.read(request, ResetPasswordRequest.READER);
+                params.validate();
+                boolean reset = UserService.resetPassword(params.email(), params.token(), params.newPassword());
+                AuthLog.record(reset ? AuthEvent.RESET_SUCCESS : AuthEvent.RESET_FAILED, 0, params.email(), clientIp(request));
+                return Json.send(response, 200, reset ? Responses.PASSWORD_RESET : Responses.PASSWORD_RESET_FAILED);
+            } catch (ValidationException e) {
+                return fail(response, 200, e.getMessage());
+            } catch (ServerBusyException e) {
+                return serverBusy(response);
+            } catch (IOException e) {
+                return Json.send(response, 400, Responses.BAD_REQUEST);
             }
         });
         
         // 获取当前用户信息
         get("/api/user", (request, response) -> {
-            User user = request.session().attribute("user");
-            
-            if (user != null) {
-                try {
-                    Map<String, Object> userInfo = new HashMap<>();
-                    userInfo.put("id", user.getId());
-                    userInfo.put("email", user.getEmail());
-                    userInfo.put("username", user.getUsername());
-                    return objectMapper.writeValueAsString(userInfo);
-                } catch (Exception e) {
-                    response.status(500);
-                    return "{\"error\": \"服务器错误\"}";
+            Integer userId = SessionManager.currentUserId(request);
+            if (userId == null) {
+                return Json.send(response, 401, Responses.UNAUTHORIZED);
+            }
+            if (notModified(request, response, userId)) {
+                return "";
+            }
+            User user = UserService.getUserById(userId);
+            if (user == null) {
+                return Json.send(response, 401, Responses.UNAUTHORIZED);
+            }
+            return Json.send(response, 200, UserView.WRITER, UserView.of(user));
+        });
+        
+        // 成就列表（键集分页，流式输出）
+        get("/api/user/achievements", (request, response) -> {
+            int userId = SessionManager.currentUserId(request);
+            if (notModified(request, response, userId)) {
+                return "";
+            }
+            try {
+                int limit = parseLimit(request.queryParams("limit"));
+                AchievementService.writePage(userId, request.queryParams("cursor"), limit,
+                        response.raw().getOutputStream());
+                return "";
+            } catch (IllegalArgumentException e) {
+                return Json.send(response, 400, Responses.BAD_PAGE);
+            }
+        });
+        
+        // 成就全文搜索
+        get("/api/user/search", (request, response) -> {
+            int userId = SessionManager.currentUserId(request);
+            if (notModified(request, response, userId)) {
+                return "";
+            }
+            try {
+                String page = request.queryParams("page");
+                String limit = request.queryParams("limit");
+                return Json.send(response, 200, SearchResult.WRITER, SearchService.search(userId, request.queryParams("q"),
+                        page == null ? 1 : Integer.parseInt(page),
+                        limit == null ? SearchService.DEFAULT_PAGE_SIZE : Integer.parseInt(limit)));
+            } catch (NumberFormatException e) {
+                return Json.send(response, 400, Responses.BAD_PAGE);
+            }
+        });
+        
+        // 成就详情
+        get("/api/user/achievements/:id", (request, response) -> {
+            int userId = SessionManager.currentUserId(request);
+            if (notModified(request, response, userId)) {
+                return "";
+            }
+            Long id = parseId(request.params(":id"));
+            Achievement achievement = id == null ? null : AchievementService.getAchievement(userId, id);
+            if (achievement == null) {
+                return Json.send(response, 404, Responses.ACHIEVEMENT_NOT_FOUND);
+            }
+            return Json.send(response, 200, AchievementView.WRITER, AchievementView.of(achievement));
+        });
+        
+        // 新建成就
+        post("/api/user/achievements", (request, response) -> {
+            int userId = SessionManager.currentUserId(request);
+            try {
+                AchievementRequest params = Json.read(request, AchievementRequest.READER);
+                params.validate();
+                Achievement achievement = AchievementService.createAchievement(userId, params);
+                return Json.send(response, 201, AchievementView.WRITER, AchievementView.of(achievement));
+            } catch (ValidationException e) {
+                return fail(response, 400, e.getMessage());
+            } catch (IOException e) {
+                return Json.send(response, 400, Responses.BAD_REQUEST);
+            }
+        });
+        
+        // 修改成就
+        put("/api/user/achievements/:id", (request, response) -> {
+            int userId = SessionManager.currentUserId(request);
+            Long id = parseId(request.params(":id"));
+            if (id == null) {
+                return Json.send(response, 404, Responses.ACHIEVEMENT_NOT_FOUND);
+            }
+            try {
+                AchievementRequest params = Json.read(request, AchievementRequest.READER);
+                params.validate();
+                Achievement achievement = AchievementService.updateAchievement(userId, id, params);
+                if (achievement == null) {
+                    return Json.send(response, 404, Responses.ACHIEVEMENT_NOT_FOUND);
                 }
+                return Json.send(response, 200, AchievementView.WRITER, AchievementView.of(achievement));
+            } catch (ValidationException e) {
+                return fail(response, 400, e.getMessage());
+            } catch (IOException e) {
+                return Json.send(response, 400, Responses.BAD_REQUEST);
+            }
+        });
+        
+        // 删除成就
+        delete("/api/user/achievements/:id", (request, response) -> {
+            int userId = SessionManager.currentUserId(request);
+            Long id = parseId(request.params(":id"));
+            if (id == null || !AchievementService.deleteAchievement(userId, id)) {
+                return Json.send(response, 404, Responses.ACHIEVEMENT_NOT_FOUND);
+            }
+            return Json.send(response, 200, Responses.DELETED);
+        });
+        
+        // 个人统计
+        get("/api/user/stats", (request, response) -> {
+            int userId = SessionManager.currentUserId(request);
+            StatsRepository.Totals totals = StatsService.getTotals(userId);
+            // ETag 取自缓存的数字本身的版本号；“今年”的数字跨年会变，年份也计入 ETag
+            String tag = UserVersions.tag(userId, totals.version) + "." + LocalDate.now().getYear();
+            if (Conditional.notModified(request, response, tag)) {
+                return "";
+            }
+            return Json.send(response, 200, StatsView.WRITER, StatsService.view(totals));
+        });
+        
+        // 数据变更推送（Server-Sent Events）
+        get("/api/user/events", (request, response) -> {
+            int userId = SessionManager.currentUserId(request);
+            ChangeFeed.Subscription subscription;
+            try {
+                subscription = ChangeFeed.subscribe(userId, request.headers("Last-Event-ID"));
+            } catch (ServerBusyException e) {
+                return serverBusy(response);
+            }
+            HttpServletResponse raw = response.raw();
+            raw.setContentType(ChangeFeed.CONTENT_TYPE);
+            raw.setHeader("Cache-Control", "no-cache");
+            // 反向代理（如 nginx）不要缓冲
+            raw.setHeader("X-Accel-Buffering", "no");
+            ServletOutputStream out = raw.getOutputStream();
+            // 响应已提交，Spark 不会再写入响应体并关闭输出流
+            ChangeFeed.writePreamble(out);
+            if (request.raw().isAsyncStarted()) {
+                // 虚拟线程模式：当前请求已在虚拟线程上，直接阻塞
+                ChangeFeed.stream(subscription, out);
             } else {
-                response.status(401);
-                return "{\"error\": \"未登录\"}";
+                // 转为异步请求，Jetty 线程立即归还，连接由一个虚拟线程持有
+                AsyncContext async = request.raw().startAsync();
+                async.setTimeout(0);
+                Thread.ofVirtual().name("sse-" + userId).start(() -> {
+                    try {
+                        ChangeFeed.stream(subscription, out);
+                    } finally {
+                        async.complete();
+                    }
+                });
+            }
+            return "";
+        });
+        
+        // 上传照片（multipart/form-data，边读边写入磁盘）
+        post("/api/user/photos", (request, response) -> {
+            int userId = SessionManager.currentUserId(request);
+            try {
+                PhotoUploadResponse result = PhotoService.upload(userId, request.contentType(),
+                        request.contentLength(), request.raw().getInputStream());
+                return Json.send(response, 201, PhotoUploadResponse.WRITER, result);
+            } catch (PayloadTooLargeException e) {
+                response.header("Connection", "close");
+                return fail(response, 413, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                return fail(response, 400, e.getMessage());
+            } catch (IOException e) {
+                return Json.send(response, 400, Responses.UPLOAD_INTERRUPTED);
+            }
+        });
+        
+        // 照片原图与缩略图（仅上传过该照片的用户可访问）
+        get("/api/user/photos/:hash", (request, response) -> {
+            try {
+                return servePhoto(request, response, false);
+            } catch (ServerBusyException e) {
+                return serverBusy(response);
+            }
+        });
+        
+        get("/api/user/photos/:hash/thumb", (request, response) -> {
+            try {
+                return servePhoto(request, response, true);
+            } catch (ServerBusyException e) {
+                return serverBusy(response);
+            }
+        });
+        
+        // 从自己的照片中移除（释放存储量）
+        delete("/api/user/photos/:hash", (request, response) -> {
+            int userId = SessionManager.currentUserId(request);
+            if (!PhotoService.remove(userId, request.params(":hash"))) {
+                return Json.send(response, 404, Responses.PHOTO_NOT_FOUND);
+            }
+            return Json.send(response, 200, Responses.DELETED);
+        });
+        
+        // Prometheus 指标
+        get("/metrics", (request, response) -> {
+            if (!metricsAllowed(request)) {
+                return Json.send(response, 403, Responses.FORBIDDEN);
             }
+            response.type("text/plain; version=0.0.4; charset=utf-8");
+            return Metrics.render();
         });
         
         // 退出登录
         post("/api/logout", (request, response) -> {
-            request.session().invalidate();
-            return "{\"success\": true, \"message\": \"退出成功\"}";
+            Integer userId = SessionManager.currentUserId(request);
+            SessionManager.logout(request, response);
+            if (userId != null) {
+                AuthLog.record(AuthEvent.LOGOUT, userId, null, clientIp(request));
+                ChangeFeed.disconnect(userId);
+            }
+            return Json.send(response, 200, Responses.LOGGED_OUT);
+        });
+        
+        // 静态资源（必须最后注册，只匹配前面的路由都没有处理的请求）
+        get("/*", (request, response) -> {
+            if (StaticAssets.serve(request, response)) {
+                return "";
+            }
+            return Json.send(response, 404, Responses.NOT_FOUND);
         });
     }
     
-    private static void initDatabase() {
-        String createTableSQL = 
-            "CREATE TABLE IF NOT EXISTS users (" +
-            "id INT AUTO_INCREMENT PRIMARY KEY, " +
-            "email VARCHAR(255) UNIQUE NOT NULL, " +
-            "password_hash VARCHAR(255) NOT NULL, " +
-            "username VARCHAR(100), " +
-            "is_verified BOOLEAN DEFAULT FALSE, " +
-            "verification_code VARCHAR(100), " +
-            "verification_expires DATETIME, " +
-            "reset_token VARCHAR(100), " +
-            "reset_expires DATETIME, " +
-            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-            "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
-            ")";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(createTableSQL);
-            System.out.println("数据库表初始化成功");
-        } catch (SQLException e) {
-            System.err.println("数据库表初始化失败: " + e.getMessage());
-            e.printStackTrace();
+    // 当前用户的数据版本未变时返回 304
+    private static boolean notModified(spark.Request request, spark.Response response, int userId) throws SQLException {
+        return Conditional.notModified(request, response, UserVersions.tag(userId));
+    }
+
+    private static int parseLimit(String limit) {
+        if (limit == null || limit.isEmpty()) {
+            return AchievementService.DEFAULT_PAGE_SIZE;
+        }
+        return Integer.parseInt(limit);
+    }
+    
+    private static Long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static String servePhoto(spark.Request request, spark.Response response, boolean thumbnail) throws Exception {
+        int userId = SessionManager.currentUserId(request);
+        String hash = request.params(":hash");
+        String contentType = PhotoService.contentTypeFor(userId, hash);
+        if (contentType == null) {
+            return Json.send(response, 404, Responses.PHOTO_NOT_FOUND);
+        }
+        Path file = thumbnail ? PhotoService.thumbnailOrOriginal(hash) : BlobStore.pathFor(hash);
+        if (!Files.exists(file)) {
+            return Json.send(response, 404, Responses.PHOTO_NOT_FOUND);
+        }
+        if (thumbnail && !file.equals(BlobStore.pathFor(hash))) {
+            return FileSender.send(request, response, file, "image/jpeg", hash + "-thumb", FileSender.CACHE_IMMUTABLE);
+        }
+        // 缩略图未生成时临时返回原图，不能让浏览器长期缓存
+        return FileSender.send(request, response, file, contentType, hash,
+                thumbnail ? FileSender.CACHE_REVALIDATE : FileSender.CACHE_IMMUTABLE);
+    }
+    
+    // 带动态消息的失败响应（校验错误等）
+    private static String fail(spark.Response response, int status, String message) throws IOException {
+        return Json.send(response, status, MessageResponse.WRITER, MessageResponse.failure(message));
+    }
+    
+    // 密码运算队列已满时快速失败，让客户端稍后重试
+    private static String serverBusy(spark.Response response) throws IOException {
+        response.header("Retry-After", "1");
+        return Json.send(response, 503, Responses.SERVER_BUSY);
+    }
+    
+    private static boolean awaitDatabase(Thread database) {
+        try {
+            database.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return databaseReady;
+    }
+
+    // 表结构版本一致时只有一次查询；失败时调用方不能继续使用数据库
+    private static void initDatabase() throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            SchemaMigrations.migrate(conn);
         }
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
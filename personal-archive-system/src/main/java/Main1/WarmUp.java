@@ -0,0 +1,70 @@
+package Main1;
+
+import dto.AchievementRequest;
+import dto.AchievementView;
+import dto.LoginRequest;
+import dto.LoginResponse;
+import dto.MessageResponse;
+import dto.RegisterRequest;
+import dto.UserView;
+import model.Achievement;
+import util.Json;
+import util.PasswordUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+// 开放端口之前把首批请求必经的路径跑一遍：Jackson 为各 DTO 生成序列化器、BCrypt 线程池启动并完成 JIT 编译，
+// 避免发布后最先登录的用户承担这些开销
+class WarmUp {
+
+    private static final int ITERATIONS = Integer.getInteger("startup.warmupIterations", 2000);
+
+    private static final byte[] LOGIN = bytes("{\"email\":\"warmup@example.com\",\"password\":\"Warmup-Passw0rd\"}");
+    private static final byte[] REGISTER =
+        bytes("{\"email\":\"warmup@example.com\",\"password\":\"Warmup-Passw0rd\",\"username\":\"预热\"}");
+    private static final byte[] ACHIEVEMENT =
+        bytes("{\"title\":\"预热\",\"description\":\"启动预热\",\"date\":\"2024-01-01\",\"tags\":[\"a\",\"b\"]}");
+
+    private static final OutputStream DISCARD = OutputStream.nullOutputStream();
+
+    static void json() {
+        UserView user = new UserView(1, "warmup@example.com", "预热");
+        Achievement achievement = new Achievement();
+        achievement.setId(1);
+        achievement.setTitle("预热");
+        achievement.setDate(LocalDate.of(2024, 1, 1));
+        achievement.setTags(List.of("a", "b"));
+        try {
+            for (int i = 0; i < ITERATIONS; i++) {
+                LoginRequest login = LoginRequest.READER.readValue(LOGIN);
+                login.validate();
+                RegisterRequest register = RegisterRequest.READER.readValue(REGISTER);
+                register.validate();
+                AchievementRequest request = AchievementRequest.READER.readValue(ACHIEVEMENT);
+                request.validate();
+                Json.peekField(LOGIN, "email");
+
+                LoginResponse.WRITER.writeValue(DISCARD, new LoginResponse(true, "登录成功", user));
+                MessageResponse.WRITER.writeValue(DISCARD, new MessageResponse(true, "预热"));
+                AchievementView.WRITER.writeValue(DISCARD, AchievementView.of(achievement));
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("JSON 预热失败: " + e.getMessage());
+        }
+    }
+
+    // 校准 cost 的同时完成 BCrypt 的 JIT 编译；再经线程池哈希、校验各一次，把工作线程启动起来
+    static void bcrypt() {
+        PasswordUtil.calibrate();
+        String hash = PasswordUtil.hashPassword("Warmup-Passw0rd");
+        PasswordUtil.checkPassword("Warmup-Passw0rd", hash);
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
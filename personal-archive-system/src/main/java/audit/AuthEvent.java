@@ -0,0 +1,36 @@
+package audit;
+
+// 认证事件类型；code 写入日志文件，只能追加新值，不能修改已有的编号
+public enum AuthEvent {
+    LOGIN_SUCCESS(1),
+    LOGIN_FAILED(2),
+    LOGIN_UNVERIFIED(3),
+    LOGOUT(4),
+    REGISTERED(5),
+    REGISTER_EMAIL_TAKEN(6),
+    VERIFY_SUCCESS(7),
+    VERIFY_FAILED(8),
+    RESET_REQUESTED(9),
+    RESET_SUCCESS(10),
+    RESET_FAILED(11),
+    RATE_LIMITED(12);
+
+    private static final AuthEvent[] BY_CODE = new AuthEvent[256];
+
+    static {
+        for (AuthEvent event : values()) {
+            BY_CODE[event.code] = event;
+        }
+    }
+
+    final byte code;
+
+    AuthEvent(int code) {
+        this.code = (byte) code;
+    }
+
+    // 未知编号（较新版本写入的类型）返回 null
+    static AuthEvent ofCode(byte code) {
+        return BY_CODE[code & 0xff];
+    }
+}
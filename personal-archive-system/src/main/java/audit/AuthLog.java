@@ -0,0 +1,164 @@
+package audit;
+
+import util.Metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// 认证事件日志（登录失败、验证、重置密码、退出等），供安全审计与统计分析。
+// 请求线程只把事件放进环形缓冲区（一次 CAS 加几次字段写入，不加锁、不做 I/O），
+// 由单个写线程计算邮箱摘要、编码并追加到内存映射的分段文件；缓冲区满时丢弃事件并计数，不阻塞请求
+public class AuthLog {
+
+    private static final Path DIR = Paths.get(System.getProperty("authlog.dir", "data/authlog")).toAbsolutePath();
+    private static final long SEGMENT_BYTES = Math.min(1024, Long.getLong("authlog.segmentMB", 64L)) * 1024 * 1024;
+    private static final Duration RETENTION = Duration.ofDays(Long.getLong("authlog.retentionDays", 90L));
+    private static final long FLUSH_INTERVAL_NANOS = Duration.ofMillis(Long.getLong("authlog.flushMs", 1000L)).toNanos();
+
+    // 容量取 2 的幂，下标用位与计算
+    private static final int CAPACITY = Integer.highestOneBit(Math.max(1024, Integer.getInteger("authlog.ringSize", 65536)));
+    private static final int MASK = CAPACITY - 1;
+
+    private static final class Slot {
+        long timeMillis;
+        AuthEvent event;
+        int userId;
+        String email;
+        String ip;
+    }
+
+    private static final Slot[] slots = new Slot[CAPACITY];
+    // 每个槽位最后发布的序号；写线程看到与期望序号相同才读取该槽位
+    private static final AtomicLongArray published = new AtomicLongArray(CAPACITY);
+    // 下一个可领取的序号、写线程已处理完的序号
+    private static final AtomicLong claimed = new AtomicLong();
+    private static final AtomicLong consumed = new AtomicLong();
+
+    private static final Metrics.Counter written = Metrics.counter("authlog_events_total", "写入认证日志的事件数");
+    private static final Metrics.Counter dropped = Metrics.counter("authlog_dropped_total", "缓冲区已满而丢弃的认证事件数");
+
+    private static volatile Thread writer;
+    private static volatile boolean running;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+        Metrics.gauge("authlog_backlog", "认证日志缓冲区中尚未写入的事件数", () -> claimed.get() - consumed.get());
+    }
+
+    public static Path directory() {
+        return DIR;
+    }
+
+    public static synchronized void start() {
+        if (writer != null) {
+            return;
+        }
+        SegmentWriter segments;
+        try {
+            segments = new SegmentWriter(DIR, SEGMENT_BYTES, RETENTION);
+        } catch (IOException e) {
+            System.err.println("打开认证日志失败，认证事件将不记录: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(() -> runLoop(segments), "authlog-writer");
+        thread.setDaemon(true);
+        thread.start();
+        writer = thread;
+        // 退出时写完缓冲区中的事件
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            running = false;
+            LockSupport.unpark(thread);
+            try {
+                thread.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "authlog-shutdown"));
+        System.out.println("认证日志: " + DIR);
+    }
+
+    // userId 未知时传 0；email、ip 可为 null
+    public static void record(AuthEvent event, int userId, String email, String ip) {
+        if (writer == null) {
+            return;
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed.get() >= CAPACITY) {
+                dropped.inc();
+                return;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) sequence & MASK];
+        slot.timeMillis = System.currentTimeMillis();
+        slot.event = event;
+        slot.userId = userId;
+        slot.email = email;
+        slot.ip = ip;
+        published.setRelease((int) sequence & MASK, sequence);
+    }
+
+    private static void runLoop(SegmentWriter segments) {
+        MessageDigest sha256 = AuthLogFormat.sha256();
+        byte[] ip = new byte[16];
+        long next = 0;
+        long lastFlush = System.nanoTime();
+        boolean dirty = false;
+        while (running || next < claimed.get()) {
+            int index = (int) next & MASK;
+            if (published.getAcquire(index) != next) {
+                if (dirty && System.nanoTime() - lastFlush >= FLUSH_INTERVAL_NANOS) {
+                    segments.flush();
+                    lastFlush = System.nanoTime();
+                    dirty = false;
+                }
+                if (!running) {
+                    // 正在退出，等待已领取序号的线程写完槽位
+                    Thread.onSpinWait();
+                    continue;
+                }
+                LockSupport.parkNanos(1_000_000);
+                continue;
+            }
+
+            Slot slot = slots[index];
+            long timeMillis = slot.timeMillis;
+            AuthEvent event = slot.event;
+            int userId = slot.userId;
+            String email = slot.email;
+            String address = slot.ip;
+            slot.email = null;
+            slot.ip = null;
+            consumed.set(++next);
+
+            Arrays.fill(ip, (byte) 0);
+            int ipLength = AuthLogFormat.encodeIp(address, ip);
+            try {
+                segments.append(timeMillis, event.code, userId, AuthLogFormat.emailDigest(sha256, email), ip, ipLength);
+                written.inc();
+                dirty = true;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("写入认证日志失败: " + e.getMessage());
+            }
+        }
+        try {
+            segments.close();
+        } catch (IOException e) {
+            System.err.println("关闭认证日志失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package audit;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+// 认证事件日志的文件格式。每个分段文件 = 16 字节文件头 + 若干条定长记录，按写入顺序追加。
+// 文件头：8 字节魔数 + int 记录长度 + int 保留。记录（40 字节，大端）：
+//   0  long  时间戳（毫秒）
+//   8  byte  事件类型（AuthEvent.code；0 表示此处尚未写入，读取到此为止）
+//   9  byte  IP 字节数（0、4 或 16）
+//  10  short 保留
+//  12  int   用户 id（未知为 0）
+//  16  long  邮箱摘要（小写邮箱 SHA-256 的前 8 字节，未知为 0），日志中不保存邮箱原文
+//  24  16B   IP 地址
+final class AuthLogFormat {
+
+    static final byte[] MAGIC = "PAAUTHv1".getBytes(StandardCharsets.US_ASCII);
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 40;
+    static final int TYPE_OFFSET = 8;
+
+    private static final String PREFIX = "auth-";
+    private static final String SUFFIX = ".log";
+
+    private AuthLogFormat() {
+    }
+
+    static String segmentName(long sequence) {
+        return String.format("%s%010d%s", PREFIX, sequence, SUFFIX);
+    }
+
+    static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    // 目录下的全部分段，按序号排列
+    static List<Path> segments(Path dir) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(f -> {
+                String name = f.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX)
+                    && name.length() == PREFIX.length() + 10 + SUFFIX.length();
+            }).forEach(segments::add);
+        }
+        segments.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+        return segments;
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static long emailDigest(MessageDigest sha256, String email) {
+        if (email == null || email.isEmpty()) {
+            return 0;
+        }
+        byte[] digest = sha256.digest(email.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8));
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (digest[i] & 0xff);
+        }
+        return value;
+    }
+
+    static String digestHex(long digest) {
+        return String.format("%016x", digest);
+    }
+
+    // 把 IP 字面量写入 out（16 字节），返回字节数；无法解析时返回 0。只解析字面量，不做 DNS 查询
+    static int encodeIp(String ip, byte[] out) {
+        if (ip == null || ip.isEmpty()) {
+            return 0;
+        }
+        if (ip.indexOf(':') < 0) {
+            return parseIpv4(ip, out) ? 4 : 0;
+        }
+        try {
+            // 含冒号的字符串只会按 IPv6 字面量解析
+            byte[] address = InetAddress.getByName(ip.startsWith("[") ? ip.substring(1, ip.length() - 1) : ip).getAddress();
+            System.arraycopy(address, 0, out, 0, address.length);
+            return address.length;
+        } catch (UnknownHostException | RuntimeException e) {
+            return 0;
+        }
+    }
+
+    static String decodeIp(byte[] ip, int length) {
+        if (length != 4 && length != 16) {
+            return null;
+        }
+        byte[] address = new byte[length];
+        System.arraycopy(ip, 0, address, 0, length);
+        try {
+            return InetAddress.getByAddress(address).getHostAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private static boolean parseIpv4(String ip, byte[] out) {
+        int part = 0;
+        int value = -1;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c == '.') {
+                if (value < 0 || part == 4) {
+                    return false;
+                }
+                out[part++] = (byte) value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        return part == 4;
+    }
+}
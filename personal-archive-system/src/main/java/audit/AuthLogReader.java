@@ -0,0 +1,85 @@
+package audit;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+
+// 读取认证日志并输出为 JSONL（每行一个事件），用于排查与离线分析；可与正在写入的服务器同时运行
+public class AuthLogReader {
+
+    private static final JsonFactory jsonFactory = new JsonFactory()
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    // 筛选条件：type 为 null、email 为 null、userId 为 0、sinceMillis 为 0 时表示不限；返回输出的事件数
+    public static long export(Path dir, AuthEvent type, String email, int userId, long sinceMillis,
+                              OutputStream out) throws IOException {
+        long digest = AuthLogFormat.emailDigest(AuthLogFormat.sha256(), email);
+        byte[] ip = new byte[16];
+        long count = 0;
+        try (JsonGenerator json = jsonFactory.createGenerator(out, JsonEncoding.UTF8)) {
+            json.setRootValueSeparator(null);
+            for (Path segment : AuthLogFormat.segments(dir)) {
+                MappedByteBuffer buffer;
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                    if (channel.size() < AuthLogFormat.HEADER_SIZE) {
+                        continue;
+                    }
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                byte[] magic = new byte[AuthLogFormat.MAGIC.length];
+                buffer.get(0, magic);
+                if (!Arrays.equals(magic, AuthLogFormat.MAGIC) || buffer.getInt(8) != AuthLogFormat.RECORD_SIZE) {
+                    System.err.println("跳过格式不符的分段: " + segment);
+                    continue;
+                }
+
+                for (int offset = AuthLogFormat.HEADER_SIZE;
+                     offset + AuthLogFormat.RECORD_SIZE <= buffer.capacity();
+                     offset += AuthLogFormat.RECORD_SIZE) {
+                    byte code = buffer.get(offset + AuthLogFormat.TYPE_OFFSET);
+                    if (code == 0) {
+                        break;
+                    }
+                    long timeMillis = buffer.getLong(offset);
+                    int recordUserId = buffer.getInt(offset + 12);
+                    long recordDigest = buffer.getLong(offset + 16);
+                    AuthEvent event = AuthEvent.ofCode(code);
+                    if (type != null && event != type
+                            || email != null && recordDigest != digest
+                            || userId != 0 && recordUserId != userId
+                            || timeMillis < sinceMillis) {
+                        continue;
+                    }
+
+                    buffer.get(offset + 24, ip);
+                    json.writeStartObject();
+                    json.writeStringField("time", Instant.ofEpochMilli(timeMillis).toString());
+                    json.writeStringField("event", event != null ? event.name() : "UNKNOWN_" + code);
+                    if (recordUserId != 0) {
+                        json.writeNumberField("userId", recordUserId);
+                    }
+                    if (recordDigest != 0) {
+                        json.writeStringField("email", AuthLogFormat.digestHex(recordDigest));
+                    }
+                    String address = AuthLogFormat.decodeIp(ip, buffer.get(offset + 9));
+                    if (address != null) {
+                        json.writeStringField("ip", address);
+                    }
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,139 @@
+package audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+// 分段日志的写入端（只在 AuthLog 的写线程中使用）：当前分段整体映射到内存，追加记录只是写内存，
+// 由操作系统回写磁盘；写满后换下一个分段，同时删除超过保留期的旧分段
+final class SegmentWriter {
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final Duration retention;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long sequence;
+
+    SegmentWriter(Path dir, long segmentBytes, Duration retention) throws IOException {
+        this.dir = dir;
+        long records = Math.max(1, (segmentBytes - AuthLogFormat.HEADER_SIZE) / AuthLogFormat.RECORD_SIZE);
+        this.segmentBytes = AuthLogFormat.HEADER_SIZE + records * AuthLogFormat.RECORD_SIZE;
+        this.retention = retention;
+        Files.createDirectories(dir);
+
+        // 重启后接着最后一个分段写；分段格式不符（如记录长度变化）时另起新分段
+        List<Path> segments = AuthLogFormat.segments(dir);
+        if (!segments.isEmpty()) {
+            Path last = segments.get(segments.size() - 1);
+            sequence = AuthLogFormat.sequenceOf(last);
+            if (Files.size(last) == this.segmentBytes) {
+                open(last);
+                if (hasValidHeader()) {
+                    buffer.position(firstFreeOffset());
+                    purgeExpired();
+                    return;
+                }
+                close();
+            }
+        }
+        openNext();
+    }
+
+    void append(long timeMillis, byte type, int userId, long emailDigest, byte[] ip, int ipLength) throws IOException {
+        if (buffer.remaining() < AuthLogFormat.RECORD_SIZE) {
+            rotate();
+        }
+        int offset = buffer.position();
+        buffer.putLong(offset, timeMillis);
+        buffer.put(offset + 9, (byte) ipLength);
+        buffer.putInt(offset + 12, userId);
+        buffer.putLong(offset + 16, emailDigest);
+        buffer.put(offset + 24, ip, 0, 16);
+        // 类型字节最后写，读取方以它判断记录是否完整
+        buffer.put(offset + AuthLogFormat.TYPE_OFFSET, type);
+        buffer.position(offset + AuthLogFormat.RECORD_SIZE);
+    }
+
+    // 把已写入的记录刷到磁盘
+    void flush() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    void close() throws IOException {
+        flush();
+        buffer = null;
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void rotate() throws IOException {
+        close();
+        openNext();
+        purgeExpired();
+    }
+
+    private void openNext() throws IOException {
+        sequence++;
+        Path segment = dir.resolve(AuthLogFormat.segmentName(sequence));
+        Files.deleteIfExists(segment);
+        open(segment);
+        buffer.put(AuthLogFormat.MAGIC);
+        buffer.putInt(AuthLogFormat.RECORD_SIZE);
+        buffer.putInt(0);
+    }
+
+    // 映射时文件会扩展到分段大小（稀疏文件，未写入部分不占磁盘）
+    private void open(Path segment) throws IOException {
+        channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+    }
+
+    private boolean hasValidHeader() {
+        byte[] magic = new byte[AuthLogFormat.MAGIC.length];
+        buffer.get(0, magic);
+        return Arrays.equals(magic, AuthLogFormat.MAGIC) && buffer.getInt(8) == AuthLogFormat.RECORD_SIZE;
+    }
+
+    // 记录连续写入，已写部分的类型字节都非 0：二分查找第一个空位
+    private int firstFreeOffset() {
+        long low = 0;
+        long high = (segmentBytes - AuthLogFormat.HEADER_SIZE) / AuthLogFormat.RECORD_SIZE;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            int offset = (int) (AuthLogFormat.HEADER_SIZE + mid * AuthLogFormat.RECORD_SIZE);
+            if (buffer.get(offset + AuthLogFormat.TYPE_OFFSET) != 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return (int) (AuthLogFormat.HEADER_SIZE + low * AuthLogFormat.RECORD_SIZE);
+    }
+
+    private void purgeExpired() {
+        FileTime cutoff = FileTime.fromMillis(System.currentTimeMillis() - retention.toMillis());
+        try {
+            for (Path segment : AuthLogFormat.segments(dir)) {
+                if (AuthLogFormat.sequenceOf(segment) != sequence
+                        && Files.getLastModifiedTime(segment).compareTo(cutoff) < 0) {
+                    Files.deleteIfExists(segment);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("清理过期认证日志失败: " + e.getMessage());
+        }
+    }
+}
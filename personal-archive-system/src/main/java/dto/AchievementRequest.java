@@ -0,0 +1,63 @@
+package dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.ObjectReader;
+import util.Json;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+// 新建/修改成就；tags 既可以是数组，也可以是逗号分隔的字符串
+public record AchievementRequest(String title, String description, String date,
+                                 @JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY) List<String> tags,
+                                 String photoUrl) implements Validated {
+
+    public static final ObjectReader READER = Json.reader(AchievementRequest.class);
+
+    public static final int MAX_TITLE_LENGTH = 200;
+    public static final int MAX_DESCRIPTION_LENGTH = 5000;
+
+    @Override
+    public void validate() {
+        if (title == null || title.isBlank() || title.trim().length() > MAX_TITLE_LENGTH) {
+            throw new ValidationException("标题不能为空且不超过" + MAX_TITLE_LENGTH + "字");
+        }
+        if (description != null && description.length() > MAX_DESCRIPTION_LENGTH) {
+            throw new ValidationException("描述不能超过" + MAX_DESCRIPTION_LENGTH + "字");
+        }
+        if (date != null && !date.isEmpty()) {
+            parsedDate();
+        }
+        if (photoUrl != null && !photoUrl.isEmpty() && !isRelativePath(photoUrl)) {
+            throw new ValidationException("无效的图片地址");
+        }
+    }
+
+    // 只接受站内相对地址。浏览器把 "/\" 当作 "//"（协议相对地址），并会忽略地址中的制表符和换行，
+    // 所以反斜杠和控制字符一律拒绝
+    private static boolean isRelativePath(String url) {
+        if (!url.startsWith("/") || url.startsWith("//")) {
+            return false;
+        }
+        for (int i = 0; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '\\' || c < 0x20 || c == 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 未填写日期时为今天
+    public LocalDate parsedDate() {
+        if (date == null || date.isEmpty()) {
+            return LocalDate.now();
+        }
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new ValidationException("日期格式应为 yyyy-MM-dd");
+        }
+    }
+}
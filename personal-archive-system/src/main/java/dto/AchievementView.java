@@ -0,0 +1,20 @@
+package dto;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import model.Achievement;
+import util.Json;
+
+import java.util.List;
+
+// 字段与列表接口流式输出的条目一致
+public record AchievementView(long id, String title, String description, String date, List<String> tags,
+                              String photoUrl) {
+
+    public static final ObjectWriter WRITER = Json.writer(AchievementView.class);
+
+    public static AchievementView of(Achievement achievement) {
+        return new AchievementView(achievement.getId(), achievement.getTitle(), achievement.getDescription(),
+            achievement.getDate() == null ? null : achievement.getDate().toString(),
+            achievement.getTags(), achievement.getPhotoUrl());
+    }
+}
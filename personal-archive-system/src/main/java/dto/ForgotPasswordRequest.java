@@ -0,0 +1,17 @@
+package dto;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import util.Json;
+
+public record ForgotPasswordRequest(String email) implements Validated {
+
+    public static final ObjectReader READER = Json.reader(ForgotPasswordRequest.class);
+
+    @Override
+    public void validate() {
+        if (email == null || email.isEmpty()) {
+            throw new ValidationException("请输入邮箱地址");
+        }
+        Inputs.checkEmail(email);
+    }
+}
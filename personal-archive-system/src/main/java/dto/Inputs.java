@@ -0,0 +1,35 @@
+package dto;
+
+import java.nio.charset.StandardCharsets;
+
+// 各请求共用的字段限制，与 users 表的列宽保持一致
+final class Inputs {
+
+    static final int MAX_EMAIL_LENGTH = 255;
+    static final int MAX_USERNAME_LENGTH = 100;
+    static final int MIN_PASSWORD_LENGTH = 6;
+    // BCrypt 只使用前 72 字节（UTF-8），只限制新设置的密码
+    static final int MAX_PASSWORD_BYTES = 72;
+    // 登录不按 72 字节限制：早先注册的密码可能更长（BCrypt 截断后保存）；只拦截明显异常的超长输入
+    static final int MAX_LOGIN_PASSWORD_LENGTH = 1024;
+
+    private Inputs() {
+    }
+
+    static void checkEmail(String email) {
+        int at = email.indexOf('@');
+        if (email.length() > MAX_EMAIL_LENGTH || at <= 0 || at != email.lastIndexOf('@')
+                || at == email.length() - 1 || email.chars().anyMatch(Character::isWhitespace)) {
+            throw new ValidationException("邮箱格式不正确");
+        }
+    }
+
+    static void checkNewPassword(String password) {
+        if (password.length() < MIN_PASSWORD_LENGTH) {
+            throw new ValidationException("密码长度至少" + MIN_PASSWORD_LENGTH + "位");
+        }
+        if (password.getBytes(StandardCharsets.UTF_8).length > MAX_PASSWORD_BYTES) {
+            throw new ValidationException("密码不能超过" + MAX_PASSWORD_BYTES + "字节（每个汉字占 3 字节）");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package dto;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import util.Json;
+
+public record LoginRequest(String email, String password) implements Validated {
+
+    public static final ObjectReader READER = Json.reader(LoginRequest.class);
+
+    @Override
+    public void validate() {
+        if (email == null || password == null || email.isEmpty() || password.isEmpty()) {
+            throw new ValidationException("请填写邮箱和密码");
+        }
+        // 超长输入不可能是合法账号，不必查库和计算哈希
+        if (email.length() > Inputs.MAX_EMAIL_LENGTH || password.length() > Inputs.MAX_LOGIN_PASSWORD_LENGTH) {
+            throw new ValidationException("登录失败，请检查邮箱和密码");
+        }
+    }
+}
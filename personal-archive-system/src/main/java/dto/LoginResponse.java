@@ -0,0 +1,9 @@
+package dto;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import util.Json;
+
+public record LoginResponse(boolean success, String message, UserView user) {
+
+    public static final ObjectWriter WRITER = Json.writer(LoginResponse.class);
+}
@@ -0,0 +1,13 @@
+package dto;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import util.Json;
+
+public record MessageResponse(boolean success, String message) {
+
+    public static final ObjectWriter WRITER = Json.writer(MessageResponse.class);
+
+    public static MessageResponse failure(String message) {
+        return new MessageResponse(false, message);
+    }
+}
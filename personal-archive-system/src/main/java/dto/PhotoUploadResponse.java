@@ -0,0 +1,10 @@
+package dto;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import util.Json;
+
+public record PhotoUploadResponse(boolean success, String hash, String url, String thumbnailUrl, long size,
+                                  String contentType, boolean deduplicated) {
+
+    public static final ObjectWriter WRITER = Json.writer(PhotoUploadResponse.class);
+}
@@ -0,0 +1,21 @@
+package dto;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import util.Json;
+
+public record RegisterRequest(String email, String password, String username) implements Validated {
+
+    public static final ObjectReader READER = Json.reader(RegisterRequest.class);
+
+    @Override
+    public void validate() {
+        if (email == null || password == null || username == null) {
+            throw new ValidationException("请填写所有必填字段");
+        }
+        Inputs.checkEmail(email);
+        Inputs.checkNewPassword(password);
+        if (username.isBlank() || username.length() > Inputs.MAX_USERNAME_LENGTH) {
+            throw new ValidationException("用户名不能为空且不超过" + Inputs.MAX_USERNAME_LENGTH + "字");
+        }
+    }
+}
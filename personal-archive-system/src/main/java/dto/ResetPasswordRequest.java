@@ -0,0 +1,22 @@
+package dto;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import util.Json;
+
+public record ResetPasswordRequest(String email, String token, String newPassword) implements Validated {
+
+    public static final ObjectReader READER = Json.reader(ResetPasswordRequest.class);
+
+    @Override
+    public void validate() {
+        if (email == null || token == null || newPassword == null) {
+            throw new ValidationException("参数不完整");
+        }
+        Inputs.checkEmail(email);
+        // 令牌为 32 字节的 Base64URL 编码
+        if (token.length() > 64) {
+            throw new ValidationException("重置失败，链接可能已过期");
+        }
+        Inputs.checkNewPassword(newPassword);
+    }
+}
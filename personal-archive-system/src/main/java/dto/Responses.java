@@ -0,0 +1,45 @@
+package dto;
+
+import util.Json;
+
+import java.util.Map;
+
+// 固定不变的响应体，启动时编码一次，之后直接写出字节
+public final class Responses {
+
+    public static final byte[] SERVER_OK = single("message", "服务器运行正常");
+    public static final byte[] BAD_REQUEST = message(false, "请求格式错误");
+    public static final byte[] SERVER_BUSY = message(false, "服务器繁忙，请稍后重试");
+    public static final byte[] TOO_MANY_REQUESTS = message(false, "请求过于频繁，请稍后再试");
+    public static final byte[] NOT_LOGGED_IN = single("error", "请先登录");
+    public static final byte[] UNAUTHORIZED = single("error", "未登录");
+    public static final byte[] FORBIDDEN = single("error", "无权访问");
+    public static final byte[] BAD_PAGE = single("error", "分页参数错误");
+    public static final byte[] ACHIEVEMENT_NOT_FOUND = single("error", "成就不存在");
+    public static final byte[] PHOTO_NOT_FOUND = single("error", "照片不存在");
+    public static final byte[] NOT_FOUND = single("error", "资源不存在");
+    public static final byte[] UPLOAD_INTERRUPTED = message(false, "上传中断，请重试");
+    public static final byte[] DELETED = message(true, "删除成功");
+    public static final byte[] LOGGED_OUT = message(true, "退出成功");
+
+    public static final byte[] REGISTERED = message(true, "注册成功，请查收验证邮件");
+    public static final byte[] REGISTER_FAILED = message(false, "注册失败，请稍后重试");
+    public static final byte[] EMAIL_TAKEN = message(false, "该邮箱已被注册");
+    public static final byte[] LOGIN_FAILED = message(false, "登录失败，请检查邮箱和密码");
+    public static final byte[] EMAIL_NOT_VERIFIED = message(false, "邮箱未验证，请先验证邮箱");
+    public static final byte[] RESET_LINK_SENT = message(true, "重置链接已发送到您的邮箱");
+    public static final byte[] RESET_LINK_FAILED = message(false, "发送失败，请检查邮箱地址");
+    public static final byte[] PASSWORD_RESET = message(true, "密码重置成功");
+    public static final byte[] PASSWORD_RESET_FAILED = message(false, "重置失败，链接可能已过期");
+
+    private Responses() {
+    }
+
+    public static byte[] message(boolean success, String message) {
+        return Json.encode(new MessageResponse(success, message));
+    }
+
+    private static byte[] single(String field, String message) {
+        return Json.encode(Map.of(field, message));
+    }
+}
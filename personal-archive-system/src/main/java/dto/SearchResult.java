@@ -0,0 +1,11 @@
+package dto;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import util.Json;
+
+import java.util.List;
+
+public record SearchResult(List<AchievementView> items, int page, boolean hasMore) {
+
+    public static final ObjectWriter WRITER = Json.writer(SearchResult.class);
+}
@@ -0,0 +1,10 @@
+package dto;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import util.Json;
+
+public record StatsView(long totalAchievements, long newThisYear, long tagsCount, long storageUsedMB,
+                        long storageTotalMB) {
+
+    public static final ObjectWriter WRITER = Json.writer(StatsView.class);
+}
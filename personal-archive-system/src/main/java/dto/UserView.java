@@ -0,0 +1,14 @@
+package dto;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import model.User;
+import util.Json;
+
+public record UserView(int id, String email, String username) {
+
+    public static final ObjectWriter WRITER = Json.writer(UserView.class);
+
+    public static UserView of(User user) {
+        return new UserView(user.getId(), user.getEmail(), user.getUsername());
+    }
+}
@@ -0,0 +1,6 @@
+package dto;
+
+// 请求对象的输入校验，在访问数据库之前调用；不合法时抛出 ValidationException
+public interface Validated {
+    void validate();
+}
@@ -0,0 +1,9 @@
+package dto;
+
+// 输入校验失败，消息可以直接返回给前端
+public class ValidationException extends IllegalArgumentException {
+
+    public ValidationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,38 @@
+package model;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+public class Achievement {
+    private long id;
+    private int userId;
+    private String title;
+    private String description;
+    private LocalDate date;
+    private List<String> tags = new ArrayList<>();
+    private String photoUrl;
+
+    // 默认构造函数
+    public Achievement() {}
+
+    // Getter 和 Setter 方法
+    public long getId() { return id; }
+    public void setId(long id) { this.id = id; }
+
+    public int getUserId() { return userId; }
+    public void setUserId(int userId) { this.userId = userId; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+
+    public List<String> getTags() { return tags; }
+    public void setTags(List<String> tags) { this.tags = tags; }
+
+    public String getPhotoUrl() { return photoUrl; }
+    public void setPhotoUrl(String photoUrl) { this.photoUrl = photoUrl; }
+}
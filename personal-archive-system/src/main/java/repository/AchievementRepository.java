@@ -0,0 +1,207 @@
+package repository;
+
+import model.Achievement;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// achievements 表；列表按 (achieved_on DESC, id DESC) 做键集分页，走 idx_ach_user_date 索引
+public class AchievementRepository {
+
+    public static final String COLUMNS = "id, title, description, achieved_on, tags, photo_url";
+
+    private static final String FIND_BY_ID =
+        "SELECT " + COLUMNS + " FROM achievements WHERE id = ? AND user_id = ?";
+    private static final String LOCK_BY_ID =
+        FIND_BY_ID + " FOR UPDATE";
+    private static final String FIRST_PAGE =
+        "SELECT " + COLUMNS + " FROM achievements WHERE user_id = ? " +
+        "ORDER BY achieved_on DESC, id DESC LIMIT ?";
+    private static final String NEXT_PAGE =
+        "SELECT " + COLUMNS + " FROM achievements WHERE user_id = ? " +
+        "AND (achieved_on < ? OR (achieved_on = ? AND id < ?)) " +
+        "ORDER BY achieved_on DESC, id DESC LIMIT ?";
+    // 重建搜索索引时按主键顺序扫描全表
+    private static final String SCAN_FOR_INDEX =
+        "SELECT id, user_id, title, description, tags FROM achievements WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String INSERT =
+        "INSERT INTO achievements (user_id, title, description, achieved_on, tags, photo_url) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE =
+        "UPDATE achievements SET title = ?, description = ?, achieved_on = ?, tags = ?, photo_url = ? " +
+        "WHERE id = ? AND user_id = ?";
+    private static final String DELETE =
+        "DELETE FROM achievements WHERE id = ? AND user_id = ?";
+
+    // 列序号与 COLUMNS 对应
+    public static final int COL_ID = 1;
+    public static final int COL_TITLE = 2;
+    public static final int COL_DESCRIPTION = 3;
+    public static final int COL_DATE = 4;
+    public static final int COL_TAGS = 5;
+    public static final int COL_PHOTO_URL = 6;
+
+    public static final RowMapper<Achievement> MAPPER = rs -> {
+        Achievement achievement = new Achievement();
+        achievement.setId(rs.getLong(COL_ID));
+        achievement.setTitle(rs.getString(COL_TITLE));
+        achievement.setDescription(rs.getString(COL_DESCRIPTION));
+        achievement.setDate(rs.getObject(COL_DATE, LocalDate.class));
+        achievement.setTags(splitTags(rs.getString(COL_TAGS)));
+        achievement.setPhotoUrl(rs.getString(COL_PHOTO_URL));
+        return achievement;
+    };
+
+    public static Achievement findById(Connection conn, int userId, long id) throws SQLException {
+        return findById(conn, FIND_BY_ID, userId, id);
+    }
+
+    // 事务中加锁读取修改前的数据（用于维护统计聚合）
+    public static Achievement lockById(Connection conn, int userId, long id) throws SQLException {
+        return findById(conn, LOCK_BY_ID, userId, id);
+    }
+
+    private static Achievement findById(Connection conn, String sql, int userId, long id) throws SQLException {
+        Achievement achievement = Jdbc.queryOne(conn, sql, pstmt -> {
+            pstmt.setLong(1, id);
+            pstmt.setInt(2, userId);
+        }, MAPPER);
+        if (achievement != null) {
+            achievement.setUserId(userId);
+        }
+        return achievement;
+    }
+
+    // 按 id 批量读取，返回 id -> 成就（顺序由调用方决定）
+    public static Map<Long, Achievement> findByIds(Connection conn, int userId, List<Long> ids) throws SQLException {
+        Map<Long, Achievement> result = new HashMap<>();
+        if (ids.isEmpty()) {
+            return result;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+        String sql = "SELECT " + COLUMNS + " FROM achievements WHERE user_id = ? AND id IN (" + placeholders + ")";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, userId);
+            for (int i = 0; i < ids.size(); i++) {
+                pstmt.setLong(i + 2, ids.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Achievement achievement = MAPPER.map(rs);
+                    achievement.setUserId(userId);
+                    result.put(achievement.getId(), achievement);
+                }
+            }
+        }
+        return result;
+    }
+
+    // 全表扫描一批用于建索引的行：id, user_id, title, description, tags
+    public static void forEachForIndex(Connection conn, long afterId, int limit, RowCallback callback) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(SCAN_FOR_INDEX)) {
+            pstmt.setLong(1, afterId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    callback.accept(rs);
+                }
+            }
+        }
+    }
+
+    // 逐行回调一页数据；afterDate 为 null 表示第一页
+    public static void forEachInPage(Connection conn, int userId, LocalDate afterDate, long afterId, int limit,
+                                     RowCallback callback) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(afterDate == null ? FIRST_PAGE : NEXT_PAGE)) {
+            pstmt.setInt(1, userId);
+            if (afterDate == null) {
+                pstmt.setInt(2, limit);
+            } else {
+                pstmt.setObject(2, afterDate);
+                pstmt.setObject(3, afterDate);
+                pstmt.setLong(4, afterId);
+                pstmt.setInt(5, limit);
+            }
+            pstmt.setFetchSize(limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    callback.accept(rs);
+                }
+            }
+        }
+    }
+
+    public static long insert(Connection conn, Achievement achievement) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, achievement.getUserId());
+            pstmt.setString(2, achievement.getTitle());
+            pstmt.setString(3, achievement.getDescription());
+            pstmt.setObject(4, achievement.getDate());
+            pstmt.setString(5, joinTags(achievement.getTags()));
+            pstmt.setString(6, achievement.getPhotoUrl());
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("未返回成就 id");
+                }
+                return keys.getLong(1);
+            }
+        }
+    }
+
+    public static boolean update(Connection conn, Achievement achievement) throws SQLException {
+        return Jdbc.update(conn, UPDATE, pstmt -> {
+            pstmt.setString(1, achievement.getTitle());
+            pstmt.setString(2, achievement.getDescription());
+            pstmt.setObject(3, achievement.getDate());
+            pstmt.setString(4, joinTags(achievement.getTags()));
+            pstmt.setString(5, achievement.getPhotoUrl());
+            pstmt.setLong(6, achievement.getId());
+            pstmt.setInt(7, achievement.getUserId());
+        }) > 0;
+    }
+
+    public static boolean delete(Connection conn, int userId, long id) throws SQLException {
+        return Jdbc.update(conn, DELETE, pstmt -> {
+            pstmt.setLong(1, id);
+            pstmt.setInt(2, userId);
+        }) > 0;
+    }
+
+    // 标签以逗号分隔保存在一列中
+    public static List<String> splitTags(String tags) {
+        List<String> result = new ArrayList<>();
+        if (tags == null || tags.isEmpty()) {
+            return result;
+        }
+        for (String tag : tags.split(",")) {
+            if (!tag.isEmpty()) {
+                result.add(tag);
+            }
+        }
+        return result;
+    }
+
+    public static String joinTags(List<String> tags) {
+        return tags == null || tags.isEmpty() ? null : String.join(",", tags);
+    }
+
+    // 去掉空白、重复和分隔符
+    public static List<String> normalizeTags(List<String> tags) {
+        List<String> result = new ArrayList<>();
+        for (String tag : tags) {
+            if (tag == null) {
+                continue;
+            }
+            String cleaned = tag.replace(",", " ").trim();
+            if (!cleaned.isEmpty() && !result.contains(cleaned)) {
+                result.add(cleaned);
+            }
+        }
+        return result;
+    }
+}
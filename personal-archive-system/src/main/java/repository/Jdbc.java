@@ -0,0 +1,42 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// 仓储层共用的 JDBC 小工具；连接由调用方提供，便于在同一连接/事务中执行多个操作
+public class Jdbc {
+
+    public static <T> T queryOne(Connection conn, String sql, StatementBinder binder, RowMapper<T> mapper) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            binder.bind(pstmt);
+            pstmt.setMaxRows(1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? mapper.map(rs) : null;
+            }
+        }
+    }
+
+    public static boolean exists(Connection conn, String sql, StatementBinder binder) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            binder.bind(pstmt);
+            pstmt.setMaxRows(1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    // 唯一索引/主键冲突：MySQL 错误码 1062，标准 SQLState 23505（H2 等）
+    public static boolean isDuplicateKey(SQLException e) {
+        return e.getErrorCode() == 1062 || "23505".equals(e.getSQLState());
+    }
+
+    public static int update(Connection conn, String sql, StatementBinder binder) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            binder.bind(pstmt);
+            return pstmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+// photos 表按内容哈希存放每个文件一次；user_photos 记录哪些用户上传过该文件（用于权限和存储统计）
+public class PhotoRepository {
+
+    private static final String INSERT_PHOTO =
+        "INSERT IGNORE INTO photos (hash, size_bytes, content_type) VALUES (?, ?, ?)";
+    private static final String INSERT_OWNER =
+        "INSERT IGNORE INTO user_photos (user_id, hash) VALUES (?, ?)";
+    private static final String FIND_CONTENT_TYPE =
+        "SELECT p.content_type FROM user_photos u JOIN photos p ON p.hash = u.hash " +
+        "WHERE u.user_id = ? AND u.hash = ?";
+    private static final String FIND_OWNED_SIZE =
+        "SELECT p.size_bytes FROM user_photos u JOIN photos p ON p.hash = u.hash " +
+        "WHERE u.user_id = ? AND u.hash = ? FOR UPDATE";
+    private static final String DELETE_OWNER =
+        "DELETE FROM user_photos WHERE user_id = ? AND hash = ?";
+    private static final String SUM_STORAGE =
+        "SELECT COALESCE(SUM(p.size_bytes), 0) FROM user_photos u JOIN photos p ON p.hash = u.hash " +
+        "WHERE u.user_id = ?";
+
+    public static void insertPhoto(Connection conn, String hash, long size, String contentType) throws SQLException {
+        Jdbc.update(conn, INSERT_PHOTO, pstmt -> {
+            pstmt.setString(1, hash);
+            pstmt.setLong(2, size);
+            pstmt.setString(3, contentType);
+        });
+    }
+
+    // 返回 true 表示该用户第一次拥有这个文件
+    public static boolean addOwner(Connection conn, int userId, String hash) throws SQLException {
+        return Jdbc.update(conn, INSERT_OWNER, pstmt -> {
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, hash);
+        }) > 0;
+    }
+
+    // 取消该用户对文件的归属，返回计入其存储量的字节数；用户并未上传过该文件时返回 -1。
+    // 文件本身保留（可能仍被其他用户或成就引用）
+    public static long removeOwner(Connection conn, int userId, String hash) throws SQLException {
+        StatementBinder binder = pstmt -> {
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, hash);
+        };
+        Long size = Jdbc.queryOne(conn, FIND_OWNED_SIZE, binder, rs -> rs.getLong(1));
+        if (size == null) {
+            return -1;
+        }
+        Jdbc.update(conn, DELETE_OWNER, binder);
+        return size;
+    }
+
+    // 用户拥有的全部照片的总大小，用于重建统计
+    public static long storageBytes(Connection conn, int userId) throws SQLException {
+        return Jdbc.queryOne(conn, SUM_STORAGE, pstmt -> pstmt.setInt(1, userId), rs -> rs.getLong(1));
+    }
+
+    // 用户无权访问（或文件不存在）时返回 null
+    public static String findContentType(Connection conn, int userId, String hash) throws SQLException {
+        return Jdbc.queryOne(conn, FIND_CONTENT_TYPE, pstmt -> {
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, hash);
+        }, rs -> rs.getString(1));
+    }
+}
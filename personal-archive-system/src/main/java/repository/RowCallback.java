@@ -0,0 +1,10 @@
+package repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// 逐行处理结果集，不把整页数据先装进集合
+@FunctionalInterface
+public interface RowCallback {
+    void accept(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,10 @@
+package repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// 把当前行转换为对象；按列序号读取，列顺序由对应查询的投影决定
+@FunctionalInterface
+public interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,307 @@
+package repository;
+
+import util.TokenUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+// 版本化的表结构迁移：schema_version 记录已执行到的版本，版本一致时启动只需一次查询，不再每次执行 DDL。
+// 新的表结构变更追加为下一个版本；迁移语句须可重复执行，多个实例滚动启动时可能同时执行同一版本
+public class SchemaMigrations {
+
+    @FunctionalInterface
+    private interface Migration {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    // 下标 + 1 即版本号
+    private static final Migration[] VERSIONS = {
+        conn -> execute(conn, baseline()),
+        conn -> execute(conn, userStatsVersion()),
+        SchemaMigrations::moveLegacyTokens,
+        conn -> execute(conn, sessionsByUser()),
+    };
+
+    public static int latestVersion() {
+        return VERSIONS.length;
+    }
+
+    // 返回本次执行的迁移数
+    public static int migrate(Connection conn) throws SQLException {
+        int current = currentVersion(conn);
+        if (current >= VERSIONS.length) {
+            System.out.println("数据库结构已是最新（版本 " + current + "）");
+            return 0;
+        }
+        for (int version = current + 1; version <= VERSIONS.length; version++) {
+            VERSIONS[version - 1].apply(conn);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "UPDATE schema_version SET version = ? WHERE version < ?")) {
+                pstmt.setInt(1, version);
+                pstmt.setInt(2, version);
+                pstmt.executeUpdate();
+            }
+        }
+        System.out.println("数据库结构已从版本 " + current + " 升级到 " + VERSIONS.length);
+        return VERSIONS.length - current;
+    }
+
+    private static void execute(Connection conn, String[] statements) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                try {
+                    stmt.execute(sql);
+                } catch (SQLException e) {
+                    // MySQL 不支持 ADD/DROP COLUMN IF EXISTS、CREATE INDEX IF NOT EXISTS：
+                    // 另一个实例已加上或删掉该列、已建好索引时视为已执行
+                    if (!isDuplicateColumn(e) && !isMissingColumn(e) && !isDuplicateIndex(e)) {
+                        throw e;
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isDuplicateColumn(SQLException e) {
+        return "42S21".equals(e.getSQLState());
+    }
+
+    // MySQL 为 1061（SQLState 42000），H2 为 42S11
+    private static boolean isDuplicateIndex(SQLException e) {
+        return "42S11".equals(e.getSQLState()) || e.getErrorCode() == 1061;
+    }
+
+    // 42S22：查询了不存在的列；MySQL 删除不存在的列时为 1091（SQLState 42000）
+    private static boolean isMissingColumn(SQLException e) {
+        return "42S22".equals(e.getSQLState()) || e.getErrorCode() == 1091;
+    }
+
+    // 版本表不存在时创建，视为版本 0
+    private static int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM schema_version")) {
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (version INT NOT NULL)");
+            }
+        }
+        // 表为空：插入初始行；并发启动时可能有另一个实例已插入
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO schema_version (version) "
+                + "SELECT 0 FROM (SELECT 1) AS one WHERE NOT EXISTS (SELECT 1 FROM schema_version)");
+        }
+        return 0;
+    }
+
+    // 版本 1：引入版本表之前由启动时 CREATE TABLE IF NOT EXISTS 建立的全部表，已有库上执行不会改变结构
+    private static String[] baseline() {
+        String createTableSQL =
+            "CREATE TABLE IF NOT EXISTS users (" +
+            "id INT AUTO_INCREMENT PRIMARY KEY, " +
+            "email VARCHAR(255) UNIQUE NOT NULL, " +
+            "password_hash VARCHAR(255) NOT NULL, " +
+            "username VARCHAR(100), " +
+            "is_verified BOOLEAN DEFAULT FALSE, " +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
+            ")";
+
+        String createOutboxSQL =
+            "CREATE TABLE IF NOT EXISTS email_outbox (" +
+            "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+            "to_email VARCHAR(255) NOT NULL, " +
+            "subject VARCHAR(255) NOT NULL, " +
+            "content TEXT NOT NULL, " +
+            "status VARCHAR(16) NOT NULL DEFAULT 'PENDING', " +
+            "attempts INT NOT NULL DEFAULT 0, " +
+            "next_attempt_at DATETIME NOT NULL, " +
+            "last_error VARCHAR(500), " +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "INDEX idx_outbox_due (status, next_attempt_at)" +
+            ")";
+
+        // 验证码、重置令牌单独存放，按令牌哈希点查
+        String createTokensSQL =
+            "CREATE TABLE IF NOT EXISTS auth_tokens (" +
+            "token_hash CHAR(64) PRIMARY KEY, " +
+            "user_id INT NOT NULL, " +
+            "purpose VARCHAR(16) NOT NULL, " +
+            "expires_at DATETIME NOT NULL, " +
+            "INDEX idx_tokens_user (user_id, purpose), " +
+            "INDEX idx_tokens_expires (expires_at)" +
+            ")";
+
+        String createAchievementsSQL =
+            "CREATE TABLE IF NOT EXISTS achievements (" +
+            "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+            "user_id INT NOT NULL, " +
+            "title VARCHAR(200) NOT NULL, " +
+            "description TEXT, " +
+            "achieved_on DATE NOT NULL, " +
+            "tags VARCHAR(500), " +
+            "photo_url VARCHAR(255), " +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+            "INDEX idx_ach_user_date (user_id, achieved_on, id)" +
+            ")";
+
+        // 搜索倒排表；词项按二进制比较，避免大小写/重音折叠导致主键冲突
+        String createTermsSQL =
+            "CREATE TABLE IF NOT EXISTS achievement_terms (" +
+            "user_id INT NOT NULL, " +
+            "term VARCHAR(32) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL, " +
+            "achievement_id BIGINT NOT NULL, " +
+            "weight INT NOT NULL, " +
+            "PRIMARY KEY (user_id, term, achievement_id), " +
+            "INDEX idx_terms_achievement (achievement_id)" +
+            ")";
+
+        // 个人统计聚合，随成就写入增量维护
+        String createStatsSQL =
+            "CREATE TABLE IF NOT EXISTS user_stats (" +
+            "user_id INT PRIMARY KEY, " +
+            "total_achievements INT NOT NULL DEFAULT 0, " +
+            "distinct_tags INT NOT NULL DEFAULT 0, " +
+            "storage_bytes BIGINT NOT NULL DEFAULT 0" +
+            ")";
+
+        String createYearCountsSQL =
+            "CREATE TABLE IF NOT EXISTS user_year_counts (" +
+            "user_id INT NOT NULL, " +
+            "year SMALLINT NOT NULL, " +
+            "cnt INT NOT NULL, " +
+            "PRIMARY KEY (user_id, year)" +
+            ")";
+
+        String createTagCountsSQL =
+            "CREATE TABLE IF NOT EXISTS user_tag_counts (" +
+            "user_id INT NOT NULL, " +
+            "tag VARCHAR(100) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL, " +
+            "cnt INT NOT NULL, " +
+            "PRIMARY KEY (user_id, tag)" +
+            ")";
+
+        // 照片按内容哈希只存一份，user_photos 记录归属
+        String createPhotosSQL =
+            "CREATE TABLE IF NOT EXISTS photos (" +
+            "hash CHAR(64) PRIMARY KEY, " +
+            "size_bytes BIGINT NOT NULL, " +
+            "content_type VARCHAR(32) NOT NULL, " +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+            ")";
+
+        String createUserPhotosSQL =
+            "CREATE TABLE IF NOT EXISTS user_photos (" +
+            "user_id INT NOT NULL, " +
+            "hash CHAR(64) NOT NULL, " +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+            "PRIMARY KEY (user_id, hash)" +
+            ")";
+
+        String createSessionsSQL =
+            "CREATE TABLE IF NOT EXISTS sessions (" +
+            "token_hash CHAR(64) PRIMARY KEY, " +
+            "user_id INT NOT NULL, " +
+            "expires_at BIGINT NOT NULL, " +
+            "INDEX idx_sessions_expires (expires_at)" +
+            ")";
+
+        return new String[] {
+            createTableSQL,
+            createOutboxSQL,
+            createTokensSQL,
+            createSessionsSQL,
+            createAchievementsSQL,
+            createTermsSQL,
+            createStatsSQL,
+            createYearCountsSQL,
+            createTagCountsSQL,
+            createPhotosSQL,
+            createUserPhotosSQL,
+        };
+    }
+
+    // 版本 2：用户数据的版本号，与统计聚合在同一事务中递增，用作 ETag 和变更推送的事件 id
+    private static String[] userStatsVersion() {
+        return new String[] {
+            "ALTER TABLE user_stats ADD COLUMN version BIGINT NOT NULL DEFAULT 0",
+        };
+    }
+
+    // 版本 3：auth_tokens 之前验证码、重置令牌以明文存放在 users 表中。
+    // 未过期的按哈希搬进 auth_tokens（过期时间不变），然后删除这四列。
+    // 新建的库没有这些列，查询报列不存在时直接删列（同样视为已执行）；重复执行时 INSERT IGNORE 跳过已搬过的令牌
+    private static void moveLegacyTokens(Connection conn) throws SQLException {
+        String select =
+            "SELECT id, verification_code, verification_expires, reset_token, reset_expires FROM users " +
+            "WHERE (verification_code IS NOT NULL AND verification_expires > ?) " +
+            "OR (reset_token IS NOT NULL AND reset_expires > ?)";
+        String insert =
+            "INSERT IGNORE INTO auth_tokens (token_hash, user_id, purpose, expires_at) VALUES (?, ?, ?, ?)";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int moved = 0;
+        int pending = 0;
+        try (PreparedStatement query = conn.prepareStatement(select);
+             PreparedStatement pstmt = conn.prepareStatement(insert)) {
+            query.setTimestamp(1, now);
+            query.setTimestamp(2, now);
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) {
+                    int userId = rs.getInt(1);
+                    pending += addLegacyToken(pstmt, userId, "VERIFY", rs.getString(2), rs.getTimestamp(3), now);
+                    pending += addLegacyToken(pstmt, userId, "RESET", rs.getString(4), rs.getTimestamp(5), now);
+                    if (pending >= 500) {
+                        pstmt.executeBatch();
+                        moved += pending;
+                        pending = 0;
+                    }
+                }
+            }
+            pstmt.executeBatch();
+            moved += pending;
+        } catch (SQLException e) {
+            if (!isMissingColumn(e)) {
+                throw e;
+            }
+        }
+        if (moved > 0) {
+            System.out.println("已将 " + moved + " 个未过期的令牌迁移到 auth_tokens");
+        }
+
+        execute(conn, new String[] {
+            "ALTER TABLE users DROP COLUMN verification_code",
+            "ALTER TABLE users DROP COLUMN verification_expires",
+            "ALTER TABLE users DROP COLUMN reset_token",
+            "ALTER TABLE users DROP COLUMN reset_expires",
+        });
+    }
+
+    // purpose 与 TokenService 中的取值一致
+    private static int addLegacyToken(PreparedStatement pstmt, int userId, String purpose, String token,
+                                      Timestamp expires, Timestamp now) throws SQLException {
+        if (token == null || expires == null || !expires.after(now)) {
+            return 0;
+        }
+        pstmt.setString(1, TokenUtil.sha256Hex(token));
+        pstmt.setInt(2, userId);
+        pstmt.setString(3, purpose);
+        pstmt.setTimestamp(4, expires);
+        pstmt.addBatch();
+        return 1;
+    }
+
+    // 版本 4：重置密码时按用户删除全部会话
+    private static String[] sessionsByUser() {
+        return new String[] {
+            "CREATE INDEX idx_sessions_user ON sessions (user_id)",
+        };
+    }
+}
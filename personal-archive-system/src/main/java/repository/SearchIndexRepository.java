@@ -0,0 +1,90 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// achievement_terms 倒排表：(user_id, term) -> 成就 id 及权重
+public class SearchIndexRepository {
+
+    private static final String DELETE_FOR_ACHIEVEMENT =
+        "DELETE FROM achievement_terms WHERE achievement_id = ?";
+    private static final String INSERT =
+        "INSERT INTO achievement_terms (user_id, term, achievement_id, weight) VALUES (?, ?, ?, ?)";
+    // 不用反斜杠，避免受 MySQL 的 NO_BACKSLASH_ESCAPES 模式影响
+    private static final char LIKE_ESCAPE = '!';
+
+    public static void deleteForAchievement(Connection conn, long achievementId) throws SQLException {
+        Jdbc.update(conn, DELETE_FOR_ACHIEVEMENT, pstmt -> pstmt.setLong(1, achievementId));
+    }
+
+    public static void insertTerms(Connection conn, int userId, long achievementId, Map<String, Integer> terms) throws SQLException {
+        if (terms.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT)) {
+            for (Map.Entry<String, Integer> entry : terms.entrySet()) {
+                pstmt.setInt(1, userId);
+                pstmt.setString(2, entry.getKey());
+                pstmt.setLong(3, achievementId);
+                pstmt.setInt(4, entry.getValue());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // 所有查询词都命中的成就，按权重和降序；prefix[i] 为 true 的词按前缀匹配。
+    // 每个查询词单独判断是否命中：同一个词项可能同时匹配多个查询词（如前缀 "ja" 和 "jav" 都匹配 "java"）
+    public static List<Long> search(Connection conn, int userId, List<String> terms, boolean[] prefix,
+                                    int limit, int offset) throws SQLException {
+        StringBuilder matched = new StringBuilder();
+        StringBuilder where = new StringBuilder();
+        for (int i = 0; i < terms.size(); i++) {
+            String condition = "term" + (prefix[i] ? " LIKE ? ESCAPE '" + LIKE_ESCAPE + "'" : " = ?");
+            matched.append(i == 0 ? "" : " AND ").append("MAX(CASE WHEN ").append(condition).append(" THEN 1 ELSE 0 END) = 1");
+            where.append(i == 0 ? "" : " OR ").append(condition);
+        }
+
+        String sql = "SELECT achievement_id, SUM(weight) AS score FROM achievement_terms " +
+                     "WHERE user_id = ? AND (" + where + ") " +
+                     "GROUP BY achievement_id HAVING " + matched + " " +
+                     "ORDER BY score DESC, achievement_id DESC LIMIT ? OFFSET ?";
+
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            pstmt.setInt(index++, userId);
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < terms.size(); i++) {
+                    pstmt.setString(index++, prefix[i] ? escapeLike(terms.get(i)) + "%" : terms.get(i));
+                }
+            }
+            pstmt.setInt(index++, limit);
+            pstmt.setInt(index, offset);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // 查询词中的 % 和 _ 按字面匹配
+    static String escapeLike(String term) {
+        StringBuilder sb = new StringBuilder(term.length() + 4);
+        for (int i = 0; i < term.length(); i++) {
+            char c = term.charAt(i);
+            if (c == LIKE_ESCAPE || c == '%' || c == '_') {
+                sb.append(LIKE_ESCAPE);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
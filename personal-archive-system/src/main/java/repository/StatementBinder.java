@@ -0,0 +1,10 @@
+package repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// 为预编译语句绑定参数
+@FunctionalInterface
+public interface StatementBinder {
+    void bind(PreparedStatement pstmt) throws SQLException;
+}
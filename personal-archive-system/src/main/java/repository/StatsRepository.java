@@ -0,0 +1,129 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// 每个用户的统计聚合：user_stats（总数、标签种数、存储量、数据版本号）、user_year_counts、user_tag_counts
+public class StatsRepository {
+
+    private static final String ADD_TOTALS =
+        "INSERT INTO user_stats (user_id, total_achievements, distinct_tags, storage_bytes, version) VALUES (?, ?, ?, ?, 1) " +
+        "ON DUPLICATE KEY UPDATE total_achievements = total_achievements + VALUES(total_achievements), " +
+        "distinct_tags = distinct_tags + VALUES(distinct_tags), storage_bytes = storage_bytes + VALUES(storage_bytes), " +
+        "version = version + 1";
+    private static final String FIND_VERSION =
+        "SELECT version FROM user_stats WHERE user_id = ?";
+    private static final String FIND_STORAGE =
+        "SELECT storage_bytes FROM user_stats WHERE user_id = ?";
+    private static final String RESET_TOTALS =
+        "UPDATE user_stats SET total_achievements = 0, distinct_tags = 0, storage_bytes = 0 WHERE user_id = ?";
+    private static final String INCREMENT_YEAR =
+        "INSERT INTO user_year_counts (user_id, year, cnt) VALUES (?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE cnt = cnt + VALUES(cnt)";
+    private static final String INCREMENT_TAG =
+        "INSERT INTO user_tag_counts (user_id, tag, cnt) VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE cnt = cnt + VALUES(cnt)";
+    private static final String DECREMENT_TAG =
+        "UPDATE user_tag_counts SET cnt = cnt - 1 WHERE user_id = ? AND tag = ?";
+    private static final String DELETE_EMPTY_TAG =
+        "DELETE FROM user_tag_counts WHERE user_id = ? AND tag = ? AND cnt <= 0";
+    private static final String FIND =
+        "SELECT s.total_achievements, s.distinct_tags, s.storage_bytes, COALESCE(y.cnt, 0), s.version " +
+        "FROM user_stats s LEFT JOIN user_year_counts y ON y.user_id = s.user_id AND y.year = ? " +
+        "WHERE s.user_id = ?";
+
+    public static final class Totals {
+        public final long totalAchievements;
+        public final long distinctTags;
+        public final long storageBytes;
+        public final long thisYear;
+        // 读到这些数字时的数据版本号
+        public final long version;
+
+        Totals(long totalAchievements, long distinctTags, long storageBytes, long thisYear, long version) {
+            this.totalAchievements = totalAchievements;
+            this.distinctTags = distinctTags;
+            this.storageBytes = storageBytes;
+            this.thisYear = thisYear;
+            this.version = version;
+        }
+    }
+
+    public static final Totals EMPTY = new Totals(0, 0, 0, 0, 0);
+
+    // 每次写入调用一次（增量可以全为 0），同时递增该用户的数据版本号
+    public static void addTotals(Connection conn, int userId, int achievements, int distinctTags, long storageBytes) throws SQLException {
+        Jdbc.update(conn, ADD_TOTALS, pstmt -> {
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, achievements);
+            pstmt.setInt(3, distinctTags);
+            pstmt.setLong(4, storageBytes);
+        });
+    }
+
+    public static void addToYear(Connection conn, int userId, int year, int delta) throws SQLException {
+        Jdbc.update(conn, INCREMENT_YEAR, pstmt -> {
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, year);
+            pstmt.setInt(3, delta);
+        });
+    }
+
+    // 返回 true 表示这是该用户的新标签
+    public static boolean incrementTag(Connection conn, int userId, String tag) throws SQLException {
+        return addToTag(conn, userId, tag, 1);
+    }
+
+    public static boolean addToTag(Connection conn, int userId, String tag, int count) throws SQLException {
+        // ON DUPLICATE KEY UPDATE：插入返回 1，更新返回 2
+        return Jdbc.update(conn, INCREMENT_TAG, pstmt -> {
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, tag);
+            pstmt.setInt(3, count);
+        }) == 1;
+    }
+
+    // 返回 true 表示该标签已不再被使用
+    public static boolean decrementTag(Connection conn, int userId, String tag) throws SQLException {
+        StatementBinder binder = pstmt -> {
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, tag);
+        };
+        Jdbc.update(conn, DECREMENT_TAG, binder);
+        return Jdbc.update(conn, DELETE_EMPTY_TAG, binder) > 0;
+    }
+
+    public static Totals find(Connection conn, int userId, int year) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(FIND)) {
+            pstmt.setInt(1, year);
+            pstmt.setInt(2, userId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return EMPTY;
+                }
+                return new Totals(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5));
+            }
+        }
+    }
+
+    // 没有写入过的用户为 0
+    public static long version(Connection conn, int userId) throws SQLException {
+        Long version = Jdbc.queryOne(conn, FIND_VERSION, pstmt -> pstmt.setInt(1, userId), rs -> rs.getLong(1));
+        return version != null ? version : 0;
+    }
+
+    // 没有写入过的用户为 0
+    public static long storageBytes(Connection conn, int userId) throws SQLException {
+        Long bytes = Jdbc.queryOne(conn, FIND_STORAGE, pstmt -> pstmt.setInt(1, userId), rs -> rs.getLong(1));
+        return bytes != null ? bytes : 0;
+    }
+
+    // 重建前清空该用户的聚合数据；版本号保留，重建本身再递增一次
+    public static void deleteForUser(Connection conn, int userId) throws SQLException {
+        Jdbc.update(conn, RESET_TOTALS, pstmt -> pstmt.setInt(1, userId));
+        for (String table : new String[] {"user_year_counts", "user_tag_counts"}) {
+            Jdbc.update(conn, "DELETE FROM " + table + " WHERE user_id = ?", pstmt -> pstmt.setInt(1, userId));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// auth_tokens 表：验证码、重置令牌统一存放，主键是令牌的 SHA-256
+public class TokenRepository {
+
+    private static final String INSERT =
+        "INSERT INTO auth_tokens (token_hash, user_id, purpose, expires_at) VALUES (?, ?, ?, ?)";
+    private static final String FIND_USER_ID =
+        "SELECT user_id FROM auth_tokens WHERE token_hash = ? AND purpose = ? AND expires_at > ?";
+    private static final String LOCK_USER_ID =
+        FIND_USER_ID + " FOR UPDATE";
+    private static final String DELETE =
+        "DELETE FROM auth_tokens WHERE token_hash = ?";
+    private static final String DELETE_FOR_USER =
+        "DELETE FROM auth_tokens WHERE user_id = ? AND purpose = ?";
+    private static final String DELETE_EXPIRED =
+        "DELETE FROM auth_tokens WHERE expires_at <= ? LIMIT ?";
+
+    private static final RowMapper<Integer> USER_ID_MAPPER = rs -> rs.getInt(1);
+
+    public static void insert(Connection conn, String tokenHash, int userId, String purpose,
+                              LocalDateTime expires) throws SQLException {
+        Jdbc.update(conn, INSERT, pstmt -> {
+            pstmt.setString(1, tokenHash);
+            pstmt.setInt(2, userId);
+            pstmt.setString(3, purpose);
+            pstmt.setTimestamp(4, Timestamp.valueOf(expires));
+        });
+    }
+
+    // 批量签发同一用途、同一过期时间的令牌
+    public static void insertBatch(Connection conn, List<String> tokenHashes, int[] userIds, String purpose,
+                                   LocalDateTime expires) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT)) {
+            Timestamp expiresAt = Timestamp.valueOf(expires);
+            for (int i = 0; i < userIds.length; i++) {
+                pstmt.setString(1, tokenHashes.get(i));
+                pstmt.setInt(2, userIds[i]);
+                pstmt.setString(3, purpose);
+                pstmt.setTimestamp(4, expiresAt);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    // 只读查询，不消费令牌
+    public static Integer findUserId(Connection conn, String tokenHash, String purpose, LocalDateTime now) throws SQLException {
+        return Jdbc.queryOne(conn, FIND_USER_ID, pstmt -> {
+            pstmt.setString(1, tokenHash);
+            pstmt.setString(2, purpose);
+            pstmt.setTimestamp(3, Timestamp.valueOf(now));
+        }, USER_ID_MAPPER);
+    }
+
+    // 在事务中加锁读取并删除，保证令牌只能使用一次
+    public static Integer consume(Connection conn, String tokenHash, String purpose, LocalDateTime now) throws SQLException {
+        Integer userId = Jdbc.queryOne(conn, LOCK_USER_ID, pstmt -> {
+            pstmt.setString(1, tokenHash);
+            pstmt.setString(2, purpose);
+            pstmt.setTimestamp(3, Timestamp.valueOf(now));
+        }, USER_ID_MAPPER);
+        if (userId != null) {
+            Jdbc.update(conn, DELETE, pstmt -> pstmt.setString(1, tokenHash));
+        }
+        return userId;
+    }
+
+    public static void deleteForUser(Connection conn, int userId, String purpose) throws SQLException {
+        Jdbc.update(conn, DELETE_FOR_USER, pstmt -> {
+            pstmt.setInt(1, userId);
+            pstmt.setString(2, purpose);
+        });
+    }
+
+    public static int deleteExpired(Connection conn, LocalDateTime now, int limit) throws SQLException {
+        return Jdbc.update(conn, DELETE_EXPIRED, pstmt -> {
+            pstmt.setTimestamp(1, Timestamp.valueOf(now));
+            pstmt.setInt(2, limit);
+        });
+    }
+}
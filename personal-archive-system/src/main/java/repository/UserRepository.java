@@ -0,0 +1,190 @@
+package repository;
+
+import model.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// users 表的命名查询；每个查询只取需要的列，并共用一个按列序号读取的行映射器
+public class UserRepository {
+
+    // 公开资料列（会话、/api/user 使用）
+    private static final String PROFILE_COLUMNS = "id, email, username, is_verified";
+    // 登录校验额外需要密码哈希
+    private static final String AUTH_COLUMNS = PROFILE_COLUMNS + ", password_hash";
+
+    private static final String FIND_PROFILE_BY_ID =
+        "SELECT " + PROFILE_COLUMNS + " FROM users WHERE id = ?";
+    private static final String FIND_AUTH_BY_EMAIL =
+        "SELECT " + AUTH_COLUMNS + " FROM users WHERE email = ?";
+    private static final String FIND_ID_BY_EMAIL =
+        "SELECT id FROM users WHERE email = ?";
+    private static final String EXISTS_BY_EMAIL =
+        "SELECT 1 FROM users WHERE email = ?";
+    private static final String INSERT =
+        "INSERT INTO users (email, password_hash, username) VALUES (?, ?, ?)";
+    // 令牌已在 auth_tokens 中校验，这里按主键更新，并核对链接中的邮箱
+    private static final String MARK_VERIFIED =
+        "UPDATE users SET is_verified = TRUE WHERE id = ? AND email = ?";
+    private static final String SET_PASSWORD_HASH =
+        "UPDATE users SET password_hash = ? WHERE id = ? AND email = ?";
+    private static final String REPLACE_PASSWORD_HASH =
+        "UPDATE users SET password_hash = ? WHERE id = ? AND password_hash = ?";
+    private static final String COUNT = "SELECT COUNT(*) FROM users";
+    private static final String EMAIL_PAGE = "SELECT id, email FROM users WHERE id > ? ORDER BY id LIMIT ?";
+    // 导出按主键分段读取，每段一次查询，不长时间占用游标
+    private static final String EXPORT_PAGE =
+        "SELECT " + PROFILE_COLUMNS + ", created_at FROM users WHERE id > ? ORDER BY id LIMIT ?";
+
+    // 列序号与 PROFILE_COLUMNS 对应
+    public static final RowMapper<User> PROFILE_MAPPER =
+        rs -> new User(rs.getInt(1), rs.getString(2), rs.getString(3), rs.getBoolean(4));
+
+    // 列序号与 AUTH_COLUMNS 对应
+    public static final RowMapper<User> AUTH_MAPPER = rs -> {
+        User user = PROFILE_MAPPER.map(rs);
+        user.setPasswordHash(rs.getString(5));
+        return user;
+    };
+
+    public static User findProfileById(Connection conn, int id) throws SQLException {
+        return Jdbc.queryOne(conn, FIND_PROFILE_BY_ID, pstmt -> pstmt.setInt(1, id), PROFILE_MAPPER);
+    }
+
+    public static User findAuthByEmail(Connection conn, String email) throws SQLException {
+        return Jdbc.queryOne(conn, FIND_AUTH_BY_EMAIL, pstmt -> pstmt.setString(1, email), AUTH_MAPPER);
+    }
+
+    public static Integer findIdByEmail(Connection conn, String email) throws SQLException {
+        return Jdbc.queryOne(conn, FIND_ID_BY_EMAIL, pstmt -> pstmt.setString(1, email), rs -> rs.getInt(1));
+    }
+
+    public static boolean existsByEmail(Connection conn, String email) throws SQLException {
+        return Jdbc.exists(conn, EXISTS_BY_EMAIL, pstmt -> pstmt.setString(1, email));
+    }
+
+    public static long count(Connection conn) throws SQLException {
+        return Jdbc.queryOne(conn, COUNT, pstmt -> { }, rs -> rs.getLong(1));
+    }
+
+    // 按 id 顺序读取一段 (id, email)，用于启动时构建邮箱过滤器
+    public static void forEachEmailAfter(Connection conn, int afterId, int limit, RowCallback callback) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(EMAIL_PAGE)) {
+            pstmt.setInt(1, afterId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    callback.accept(rs);
+                }
+            }
+        }
+    }
+
+    // 插入新用户，返回自增 id；邮箱已存在时抛出唯一索引冲突（见 Jdbc.isDuplicateKey）
+    public static int insert(Connection conn, String email, String passwordHash, String username) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, email);
+            pstmt.setString(2, passwordHash);
+            pstmt.setString(3, username);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("未返回用户 id");
+                }
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    // 返回已存在的邮箱（小写），用于批量导入前一次性过滤
+    public static Set<String> findExistingEmails(Connection conn, List<String> emails) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        if (emails.isEmpty()) {
+            return existing;
+        }
+        StringBuilder sql = new StringBuilder("SELECT email FROM users WHERE email IN (");
+        for (int i = 0; i < emails.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < emails.size(); i++) {
+                pstmt.setString(i + 1, emails.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    existing.add(rs.getString(1).toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return existing;
+    }
+
+    // 批量插入（MySQL 开启 rewriteBatchedStatements 后合并为多行 INSERT），返回与 users 顺序对应的自增 id
+    public static int[] insertBatch(Connection conn, List<User> users) throws SQLException {
+        int[] ids = new int[users.size()];
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+            for (User user : users) {
+                pstmt.setString(1, user.getEmail());
+                pstmt.setString(2, user.getPasswordHash());
+                pstmt.setString(3, user.getUsername());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                for (int i = 0; i < ids.length; i++) {
+                    if (!keys.next()) {
+                        throw new SQLException("未返回全部用户 id");
+                    }
+                    ids[i] = keys.getInt(1);
+                }
+            }
+        }
+        return ids;
+    }
+
+    // 读取 id 大于 afterId 的最多 limit 行；列为 PROFILE_COLUMNS 加 created_at
+    public static void forEachAfter(Connection conn, int afterId, int limit, RowCallback callback) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(EXPORT_PAGE)) {
+            pstmt.setInt(1, afterId);
+            pstmt.setInt(2, limit);
+            pstmt.setFetchSize(limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    callback.accept(rs);
+                }
+            }
+        }
+    }
+
+    public static boolean markVerified(Connection conn, int id, String email) throws SQLException {
+        return Jdbc.update(conn, MARK_VERIFIED, pstmt -> {
+            pstmt.setInt(1, id);
+            pstmt.setString(2, email);
+        }) > 0;
+    }
+
+    public static boolean setPasswordHash(Connection conn, int id, String email, String passwordHash) throws SQLException {
+        return Jdbc.update(conn, SET_PASSWORD_HASH, pstmt -> {
+            pstmt.setString(1, passwordHash);
+            pstmt.setInt(2, id);
+            pstmt.setString(3, email);
+        }) > 0;
+    }
+
+    // 仅当哈希未被其他操作修改时才替换
+    public static boolean replacePasswordHash(Connection conn, int id, String oldHash, String newHash) throws SQLException {
+        return Jdbc.update(conn, REPLACE_PASSWORD_HASH, pstmt -> {
+            pstmt.setString(1, newHash);
+            pstmt.setInt(2, id);
+            pstmt.setString(3, oldHash);
+        }) > 0;
+    }
+}
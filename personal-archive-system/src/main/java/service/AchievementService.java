@@ -0,0 +1,220 @@
+package service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import dto.AchievementRequest;
+import dto.ValidationException;
+import model.Achievement;
+import repository.AchievementRepository;
+import util.DatabaseUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.*;
+
+public class AchievementService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_TAGS_LENGTH = 500;
+    // 与 user_tag_counts.tag 的 VARCHAR(100) 一致
+    private static final int MAX_TAG_LENGTH = 100;
+
+    // 生成器不关闭底层输出流，由容器负责
+    private static final JsonFactory jsonFactory = new JsonFactory()
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    // 本页输出状态；lastDate/lastId 用于生成下一页游标
+    private static final class PageState {
+        int written;
+        boolean hasMore;
+        LocalDate lastDate;
+        long lastId;
+    }
+
+    // 以流的方式输出一页：{"items":[...],"nextCursor":"..."}，逐行写出，不构建中间集合
+    public static void writePage(int userId, String cursor, int limit, OutputStream out) throws SQLException, IOException {
+        LocalDate afterDate = null;
+        long afterId = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] parts = decodeCursor(cursor);
+            afterDate = LocalDate.parse(parts[0]);
+            afterId = Long.parseLong(parts[1]);
+        }
+        int pageSize = limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+
+        JsonGenerator json = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        json.writeStartObject();
+        json.writeArrayFieldStart("items");
+
+        PageState state = new PageState();
+        LocalDate from = afterDate;
+        long fromId = afterId;
+        try {
+            DatabaseUtil.withReadConnection(conn -> {
+                // 多取一条用来判断是否还有下一页
+                AchievementRepository.forEachInPage(conn, userId, from, fromId, pageSize + 1, rs -> {
+                    if (state.written == pageSize) {
+                        state.hasMore = true;
+                        return;
+                    }
+                    try {
+                        writeRow(json, rs);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    state.lastId = rs.getLong(AchievementRepository.COL_ID);
+                    state.lastDate = rs.getObject(AchievementRepository.COL_DATE, LocalDate.class);
+                    state.written++;
+                });
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        json.writeEndArray();
+        if (state.hasMore) {
+            json.writeStringField("nextCursor", encodeCursor(state.lastDate, state.lastId));
+        } else {
+            json.writeNullField("nextCursor");
+        }
+        json.writeEndObject();
+        json.close();
+    }
+
+    public static Achievement getAchievement(int userId, long id) {
+        try {
+            return DatabaseUtil.withReadConnection(conn -> AchievementRepository.findById(conn, userId, id));
+        } catch (SQLException e) {
+            System.err.println("获取成就失败: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    // 创建成就，返回新记录；参数不合法时抛出 IllegalArgumentException
+    public static Achievement createAchievement(int userId, AchievementRequest request) throws SQLException {
+        Achievement achievement = fromRequest(request);
+        achievement.setUserId(userId);
+        // 成就与搜索索引在同一事务中写入
+        long version = DatabaseUtil.inTransaction(conn -> {
+            achievement.setId(AchievementRepository.insert(conn, achievement));
+            SearchService.index(conn, achievement);
+            return StatsService.onCreated(conn, achievement);
+        });
+        StatsService.invalidate(userId);
+        ChangeFeed.achievementSaved(userId, version, achievement, true);
+        return achievement;
+    }
+
+    public static Achievement updateAchievement(int userId, long id, AchievementRequest request) throws SQLException {
+        Achievement achievement = fromRequest(request);
+        achievement.setUserId(userId);
+        achievement.setId(id);
+        // 返回写入后的数据版本号，成就不存在时为 -1
+        long version = DatabaseUtil.inTransaction(conn -> {
+            Achievement before = AchievementRepository.lockById(conn, userId, id);
+            if (before == null || !AchievementRepository.update(conn, achievement)) {
+                return -1L;
+            }
+            SearchService.index(conn, achievement);
+            return StatsService.onUpdated(conn, before, achievement);
+        });
+        StatsService.invalidate(userId);
+        if (version < 0) {
+            return null;
+        }
+        ChangeFeed.achievementSaved(userId, version, achievement, false);
+        return achievement;
+    }
+
+    public static boolean deleteAchievement(int userId, long id) throws SQLException {
+        long version = DatabaseUtil.inTransaction(conn -> {
+            Achievement before = AchievementRepository.lockById(conn, userId, id);
+            if (before == null || !AchievementRepository.delete(conn, userId, id)) {
+                return -1L;
+            }
+            SearchService.remove(conn, id);
+            return StatsService.onDeleted(conn, before);
+        });
+        StatsService.invalidate(userId);
+        if (version < 0) {
+            return false;
+        }
+        ChangeFeed.achievementDeleted(userId, version, id);
+        return true;
+    }
+
+    private static void writeRow(JsonGenerator json, ResultSet rs) throws SQLException, IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", rs.getLong(AchievementRepository.COL_ID));
+        json.writeStringField("title", rs.getString(AchievementRepository.COL_TITLE));
+        json.writeStringField("description", rs.getString(AchievementRepository.COL_DESCRIPTION));
+        json.writeStringField("date", rs.getString(AchievementRepository.COL_DATE));
+        json.writeArrayFieldStart("tags");
+        for (String tag : AchievementRepository.splitTags(rs.getString(AchievementRepository.COL_TAGS))) {
+            json.writeString(tag);
+        }
+        json.writeEndArray();
+        json.writeStringField("photoUrl", rs.getString(AchievementRepository.COL_PHOTO_URL));
+        json.writeEndObject();
+    }
+
+    // 请求已通过 validate() 校验，这里只做标签规整
+    private static Achievement fromRequest(AchievementRequest request) {
+        List<String> tags = new ArrayList<>();
+        if (request.tags() != null) {
+            for (String tag : request.tags()) {
+                if (tag != null) {
+                    tags.addAll(Arrays.asList(tag.split("[,，]")));
+                }
+            }
+        }
+        tags = AchievementRepository.normalizeTags(tags);
+        for (String tag : tags) {
+            if (tag.codePointCount(0, tag.length()) > MAX_TAG_LENGTH) {
+                throw new ValidationException("单个标签不能超过" + MAX_TAG_LENGTH + "字");
+            }
+        }
+        String joined = AchievementRepository.joinTags(tags);
+        if (joined != null && joined.length() > MAX_TAGS_LENGTH) {
+            throw new ValidationException("标签总长度不能超过" + MAX_TAGS_LENGTH + "字");
+        }
+
+        Achievement achievement = new Achievement();
+        achievement.setTitle(request.title().trim());
+        achievement.setDescription(request.description());
+        achievement.setDate(request.parsedDate());
+        achievement.setTags(tags);
+        if (request.photoUrl() != null && !request.photoUrl().isEmpty()) {
+            achievement.setPhotoUrl(request.photoUrl());
+        }
+        return achievement;
+    }
+
+    private static String encodeCursor(LocalDate date, long id) {
+        String raw = date + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            LocalDate.parse(parts[0]);
+            Long.parseLong(parts[1]);
+            return parts;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+}
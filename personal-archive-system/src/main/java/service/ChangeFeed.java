@@ -0,0 +1,387 @@
+package service;
+
+import dto.AchievementView;
+import dto.StatsView;
+import model.Achievement;
+import util.Metrics;
+import util.ServerBusyException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 按用户推送数据变更（Server-Sent Events）：成就新建/修改/删除时推送该条成就，统计变化时推送新的统计数字，
+// 页面据此局部更新，不再整页重新拉取。事件 id 即 UserVersions 的版本号（每次写入递增 1），断线重连时按
+// Last-Event-ID 从最近的事件中补发；缺口补不上（重启、事件已淘汰、写入发生在其他实例上）时发送 reset，由页面重新加载。
+// 只为有连接（或刚断开不久）的用户保留事件；空闲连接只占一个阻塞在队列上的虚拟线程
+public class ChangeFeed {
+
+    public static final String CONTENT_TYPE = "text/event-stream; charset=utf-8";
+
+    private static final long HEARTBEAT_MILLIS = TimeUnit.SECONDS.toMillis(Long.getLong("sse.heartbeatSeconds", 15L));
+    // 连接到期后由服务器关闭，浏览器自动重连，认证过滤器借此重新校验会话
+    private static final long MAX_CONNECTION_MILLIS = TimeUnit.MINUTES.toMillis(Long.getLong("sse.maxConnectionMinutes", 30L));
+    private static final int REPLAY_SIZE = Integer.getInteger("sse.replaySize", 64);
+    // 最后一个连接断开后继续保留事件的时间，在此期间重连可以补发
+    private static final long REPLAY_MILLIS = TimeUnit.SECONDS.toMillis(Long.getLong("sse.replaySeconds", 60L));
+    private static final int MAX_PER_USER = Integer.getInteger("sse.maxPerUser", 5);
+    private static final int MAX_CONNECTIONS = Integer.getInteger("sse.maxConnections", 10000);
+    private static final int QUEUE_CAPACITY = 256;
+
+    private static final String HELLO = "hello";
+    private static final String RESET = "reset";
+    private static final byte[] EMPTY = "{}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PREAMBLE = "retry: 3000\n\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PING = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private static final ConcurrentHashMap<Integer, Channel> channels = new ConcurrentHashMap<>();
+    private static final AtomicInteger connections = new AtomicInteger();
+
+    private static final Metrics.Counter eventsSent = Metrics.counter("sse_events_total", "推送给客户端的变更事件数");
+    private static final Metrics.Counter resets = Metrics.counter("sse_resets_total", "无法补发而要求客户端重新加载的次数");
+
+    static {
+        Metrics.gauge("sse_connections", "当前打开的变更推送连接数", connections::get);
+
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sse-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(ChangeFeed::sweepIdle, 15, 15, TimeUnit.SECONDS);
+    }
+
+    @FunctionalInterface
+    private interface Payload {
+        byte[] encode() throws SQLException, IOException;
+    }
+
+    private static final class Event {
+        // 用作关闭连接的信号
+        static final Event CLOSE = new Event(0, null, null);
+
+        final long version;
+        final String type;
+        final byte[] data;
+
+        Event(long version, String type, byte[] data) {
+            this.version = version;
+            this.type = type;
+            this.data = data;
+        }
+    }
+
+    // 一个用户的全部连接与最近的事件，读写都在 synchronized (channel) 中
+    private static final class Channel {
+        final int userId;
+        final ArrayDeque<Event> recent = new ArrayDeque<>();
+        final List<Subscription> subscribers = new ArrayList<>();
+        // 版本号大于 floor 的事件都还在 recent 中
+        long floor;
+        // 已发出的最大版本号；下一个事件的版本号应为 latest + 1
+        long latest;
+        // 有变更晚于更新的版本到达（见 publish），版本号不大于它的客户端重连时须重新加载
+        long stale = -1;
+        // 最后一个连接断开的时间，有连接时为 0
+        long idleSince;
+        boolean removed;
+
+        Channel(int userId, long version) {
+            this.userId = userId;
+            this.floor = version;
+            this.latest = version;
+        }
+
+        void add(Event event) {
+            latest = event.version;
+            recent.addLast(event);
+            if (recent.size() > REPLAY_SIZE) {
+                floor = recent.removeFirst().version;
+            }
+            for (Subscription subscription : subscribers) {
+                subscription.offer(event);
+            }
+        }
+    }
+
+    public static final class Subscription {
+        private final Channel channel;
+        private final BlockingQueue<Event> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+        // 客户端读得太慢、队列已满时置位，改为发送 reset
+        private volatile boolean overflowed;
+
+        private Subscription(Channel channel) {
+            this.channel = channel;
+        }
+
+        private void offer(Event event) {
+            if (!queue.offer(event)) {
+                overflowed = true;
+            }
+        }
+    }
+
+    // 以下方法在写入事务提交之后调用，version 为该次写入的版本号。
+    // 每次写入只发一个事件，成就事件同时带上写入后的统计数字
+    public static void achievementSaved(int userId, long version, Achievement achievement, boolean created) {
+        publish(userId, version, created ? "achievement.created" : "achievement.updated",
+            () -> withStats(userId, "achievement", AchievementView.WRITER.writeValueAsBytes(AchievementView.of(achievement))));
+    }
+
+    public static void achievementDeleted(int userId, long version, long id) {
+        publish(userId, version, "achievement.deleted",
+            () -> withStats(userId, "id", Long.toString(id).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public static void statsChanged(int userId, long version) {
+        publish(userId, version, "stats", () -> stats(userId));
+    }
+
+    private static byte[] stats(int userId) throws SQLException, IOException {
+        return StatsView.WRITER.writeValueAsBytes(StatsService.getFreshStats(userId));
+    }
+
+    // {"<name>": value, "stats": {...}}
+    private static byte[] withStats(int userId, String name, byte[] value) throws SQLException, IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(value.length + 160);
+        out.write(("{\"" + name + "\":").getBytes(StandardCharsets.UTF_8));
+        out.write(value);
+        out.write(",\"stats\":".getBytes(StandardCharsets.UTF_8));
+        out.write(stats(userId));
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    // 有连接时生成事件。事件内容（统计需要查询数据库）在锁外生成，锁内只做排序和入队
+    private static void publish(int userId, long version, String type, Payload payload) {
+        // 版本号已随事务提交：此后才建立的连接从 hello 开始，读到的版本号不小于 version
+        Channel channel = channels.get(userId);
+        if (channel == null) {
+            return;
+        }
+        byte[] data = encode(payload);
+        synchronized (channel) {
+            if (channel.removed) {
+                return;
+            }
+            if (version <= channel.latest) {
+                // 并发写入时后递增的版本先到达：这条事件的内容可能比已发出的旧，改为让在线的客户端重新加载，
+                // 并让已经收到更新版本、此时恰好断开的客户端重连时也重新加载
+                resets.inc();
+                channel.stale = channel.latest;
+                Event reset = new Event(channel.latest, RESET, EMPTY);
+                for (Subscription subscription : channel.subscribers) {
+                    subscription.offer(reset);
+                }
+                return;
+            }
+            if (data == null || version != channel.latest + 1) {
+                // 生成失败，或之前的版本是在其他实例上写入的，这里没有对应的事件
+                resets.inc();
+                channel.add(new Event(version, RESET, EMPTY));
+                return;
+            }
+            channel.add(new Event(version, type, data));
+        }
+    }
+
+    // 生成失败时返回 null，改为发送 reset，由页面重新拉取
+    private static byte[] encode(Payload payload) {
+        try {
+            return payload.encode();
+        } catch (SQLException | IOException | RuntimeException e) {
+            System.err.println("生成变更事件失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // 打开一个连接。lastEventId 为浏览器重连时带的 Last-Event-ID，首次连接为 null；连接数已满时抛出 ServerBusyException
+    public static Subscription subscribe(int userId, String lastEventId) throws SQLException {
+        if (connections.incrementAndGet() > MAX_CONNECTIONS) {
+            connections.decrementAndGet();
+            throw new ServerBusyException("推送连接数已满");
+        }
+        long last = parseEventId(lastEventId);
+        long stored;
+        try {
+            stored = UserVersions.latest(userId);
+        } catch (SQLException | RuntimeException e) {
+            connections.decrementAndGet();
+            throw e;
+        }
+        while (true) {
+            Channel channel = channels.computeIfAbsent(userId, id -> new Channel(id, stored));
+            synchronized (channel) {
+                if (channel.removed) {
+                    continue;
+                }
+                if (channel.subscribers.size() >= MAX_PER_USER) {
+                    connections.decrementAndGet();
+                    throw new ServerBusyException("该用户的推送连接数已满");
+                }
+                Subscription subscription = new Subscription(channel);
+                channel.idleSince = 0;
+                // 读取之后可能又有事件发出
+                long current = Math.max(stored, channel.latest);
+                if (lastEventId == null) {
+                    subscription.offer(new Event(current, HELLO, EMPTY));
+                } else if (last <= channel.stale) {
+                    resets.inc();
+                    subscription.offer(new Event(current, RESET, EMPTY));
+                } else if (last == current) {
+                    // 断开期间没有变更
+                } else if (last >= channel.floor && last < current && replayable(channel, last, current)) {
+                    for (Event event : channel.recent) {
+                        if (event.version > last) {
+                            subscription.offer(event);
+                        }
+                    }
+                } else {
+                    resets.inc();
+                    subscription.offer(new Event(current, RESET, EMPTY));
+                }
+                channel.subscribers.add(subscription);
+                return subscription;
+            }
+        }
+    }
+
+    // recent 中恰好有 last 之后直到 current 的每一个版本（版本号逐次递增 1）；
+    // 缺少的版本是在其他实例上写入的，或者已提交、尚未发出
+    private static boolean replayable(Channel channel, long last, long current) {
+        long expected = last + 1;
+        for (Event event : channel.recent) {
+            if (event.version > last) {
+                if (event.version != expected) {
+                    return false;
+                }
+                expected++;
+            }
+        }
+        return expected == current + 1;
+    }
+
+    // 退出登录时关闭该用户的全部连接
+    public static void disconnect(int userId) {
+        Channel channel = channels.get(userId);
+        if (channel == null) {
+            return;
+        }
+        synchronized (channel) {
+            for (Subscription subscription : channel.subscribers) {
+                subscription.queue.clear();
+                subscription.offer(Event.CLOSE);
+            }
+        }
+    }
+
+    // 连接建立后立即写出（同时提交响应头），告诉浏览器断线后的重连间隔
+    public static void writePreamble(OutputStream out) throws IOException {
+        out.write(PREAMBLE);
+        out.flush();
+    }
+
+    // 阻塞地把事件写给客户端，直到客户端断开、连接到期或被关闭；调用线程应为虚拟线程
+    public static void stream(Subscription subscription, OutputStream out) {
+        long deadline = System.currentTimeMillis() + MAX_CONNECTION_MILLIS;
+        try {
+            while (System.currentTimeMillis() < deadline) {
+                Event event = subscription.queue.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                if (event == Event.CLOSE) {
+                    break;
+                }
+                if (subscription.overflowed) {
+                    subscription.overflowed = false;
+                    subscription.queue.clear();
+                    resets.inc();
+                    event = new Event(latestOf(subscription.channel), RESET, EMPTY);
+                }
+                if (event == null) {
+                    // 心跳，同时能及时发现已断开的连接
+                    out.write(PING);
+                } else {
+                    // 一次写出队列中已有的全部事件
+                    do {
+                        if (event == Event.CLOSE) {
+                            out.flush();
+                            return;
+                        }
+                        write(out, event);
+                    } while ((event = subscription.queue.poll()) != null);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // 客户端已断开
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            unsubscribe(subscription);
+        }
+    }
+
+    private static long latestOf(Channel channel) {
+        synchronized (channel) {
+            return channel.latest;
+        }
+    }
+
+    private static void write(OutputStream out, Event event) throws IOException {
+        String head = "id: " + event.version + "\nevent: " + event.type + "\ndata: ";
+        out.write(head.getBytes(StandardCharsets.UTF_8));
+        // JSON 由 Jackson 生成，不含换行
+        out.write(event.data);
+        out.write('\n');
+        out.write('\n');
+        eventsSent.inc();
+    }
+
+    private static void unsubscribe(Subscription subscription) {
+        Channel channel = subscription.channel;
+        synchronized (channel) {
+            if (channel.subscribers.remove(subscription)) {
+                connections.decrementAndGet();
+            }
+            if (channel.subscribers.isEmpty()) {
+                channel.idleSince = System.currentTimeMillis();
+            }
+        }
+    }
+
+    // 删除断开已久的用户的事件
+    private static void sweepIdle() {
+        long cutoff = System.currentTimeMillis() - REPLAY_MILLIS;
+        for (Channel channel : channels.values()) {
+            synchronized (channel) {
+                if (channel.subscribers.isEmpty() && channel.idleSince < cutoff) {
+                    channel.removed = true;
+                    channels.remove(channel.userId, channel);
+                }
+            }
+        }
+    }
+
+    // 无法解析的 id 返回 -1
+    private static long parseEventId(String eventId) {
+        if (eventId == null) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(eventId);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
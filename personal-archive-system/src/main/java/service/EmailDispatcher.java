@@ -0,0 +1,155 @@
+package service;
+
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import javax.mail.internet.MimeMessage;
+import util.Metrics;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// 后台发信线程：从发件箱批量领取邮件，复用同一个 SMTP 长连接发送
+public class EmailDispatcher {
+
+    private static final int BATCH_SIZE = 20;
+    private static final long POLL_INTERVAL_MS = 5000;
+    // 连接空闲超过该时间后主动关闭，避免被服务器踢掉
+    private static final long TRANSPORT_IDLE_MS = 30000;
+    // 单个连接最多发送的邮件数，超过后重连（很多 SMTP 服务限制单连接发信量）
+    private static final int MAX_MESSAGES_PER_CONNECTION = 100;
+
+    private static final Metrics.Histogram sendTime = Metrics.histogram("smtp_send_seconds", "单封邮件的 SMTP 发送耗时");
+    private static final Metrics.Counter connectFailures =
+        Metrics.counter("smtp_failures_total", "SMTP 连接或发送失败次数", "stage", "connect");
+    private static final Metrics.Counter sendFailures =
+        Metrics.counter("smtp_failures_total", "SMTP 连接或发送失败次数", "stage", "send");
+
+    static {
+        Metrics.gauge("email_outbox_pending", "发件箱中待发送的邮件数", EmailOutbox::pendingCount);
+    }
+
+    private static final Semaphore wakeups = new Semaphore(0);
+    private static volatile boolean running;
+    private static Thread worker;
+
+    private static Transport transport;
+    private static long transportLastUsed;
+    private static int transportMessageCount;
+
+    public static synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        EmailOutbox.loadPendingCount();
+        worker = new Thread(EmailDispatcher::runLoop, "email-dispatcher");
+        worker.setDaemon(true);
+        worker.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(EmailDispatcher::stop, "email-dispatcher-shutdown"));
+    }
+
+    public static synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        wakeUp();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 有新邮件入队时唤醒发送线程，不必等到下一次轮询
+    static void wakeUp() {
+        if (wakeups.availablePermits() == 0) {
+            wakeups.release();
+        }
+    }
+
+    private static void runLoop() {
+        while (running) {
+            try {
+                List<EmailOutbox.Entry> batch = EmailOutbox.claimBatch(BATCH_SIZE);
+                if (batch.isEmpty()) {
+                    closeIdleTransport();
+                    wakeups.tryAcquire(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    wakeups.drainPermits();
+                    continue;
+                }
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                System.err.println("发信线程异常: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        closeTransport();
+    }
+
+    private static void sendBatch(List<EmailOutbox.Entry> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            EmailOutbox.Entry entry = batch.get(i);
+            Transport t;
+            try {
+                t = currentTransport();
+            } catch (MessagingException e) {
+                // 连不上 SMTP 服务器：本批剩余邮件全部退避重试
+                System.err.println("SMTP 连接失败: " + e.getMessage());
+                connectFailures.inc();
+                for (EmailOutbox.Entry rest : batch.subList(i, batch.size())) {
+                    EmailOutbox.markFailed(rest, e.getMessage());
+                }
+                return;
+            }
+            try {
+                MimeMessage message = EmailService.buildMessage(entry.toEmail, entry.subject, entry.content);
+                long start = System.nanoTime();
+                t.sendMessage(message, message.getAllRecipients());
+                sendTime.recordSince(start);
+                transportLastUsed = System.currentTimeMillis();
+                transportMessageCount++;
+                EmailOutbox.markSent(entry);
+                System.out.println("邮件发送成功至: " + entry.toEmail);
+            } catch (MessagingException e) {
+                System.err.println("邮件发送失败: " + e.getMessage());
+                sendFailures.inc();
+                EmailOutbox.markFailed(entry, e.getMessage());
+                // 连接可能已失效，下一封重新建立
+                closeTransport();
+            }
+        }
+    }
+
+    private static Transport currentTransport() throws MessagingException {
+        if (transport != null && (!transport.isConnected() || transportMessageCount >= MAX_MESSAGES_PER_CONNECTION)) {
+            closeTransport();
+        }
+        if (transport == null) {
+            transport = EmailService.openTransport();
+            transportMessageCount = 0;
+        }
+        return transport;
+    }
+
+    private static void closeIdleTransport() {
+        if (transport != null && System.currentTimeMillis() - transportLastUsed > TRANSPORT_IDLE_MS) {
+            closeTransport();
+        }
+    }
+
+    private static void closeTransport() {
+        if (transport == null) {
+            return;
+        }
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            // 关闭失败无需处理
+        }
+        transport = null;
+    }
+}
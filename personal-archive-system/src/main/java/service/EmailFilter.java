@@ -0,0 +1,92 @@
+package service;
+
+import repository.UserRepository;
+import util.BloomFilter;
+import util.DatabaseUtil;
+import util.Metrics;
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+// 已注册邮箱的布隆过滤器：启动时从 users 表分段加载，注册成功后加入。
+// 判定“不存在”的邮箱注册时不再先查库；判定“可能存在”时才查库确认，避免为明显重复的注册做 BCrypt 和写入。
+// 其他实例（或导入命令）新注册的邮箱不在本实例的过滤器中，由 email 唯一索引兜底
+public class EmailFilter {
+
+    private static final double FPP = Double.parseDouble(System.getProperty("bloom.fpp", "0.01"));
+    private static final int LOAD_PAGE_SIZE = 10000;
+
+    // 加载完成前为 null，此时一律视为可能存在（退回查库）
+    private static volatile BloomFilter filter;
+    // 加载期间注册的邮箱同时写入正在加载的过滤器，避免漏掉
+    private static volatile BloomFilter loading;
+
+    private static final Metrics.Counter negatives =
+        Metrics.counter("email_filter_checks_total", "注册时邮箱过滤器的判定结果", "result", "absent");
+    private static final Metrics.Counter positives =
+        Metrics.counter("email_filter_checks_total", "注册时邮箱过滤器的判定结果", "result", "maybe");
+
+    // 按 id 分段读取全部邮箱；预留两倍容量，用户数翻倍前误判率不超过 fpp
+    public static void load() {
+        long start = System.nanoTime();
+        try {
+            long users = DatabaseUtil.withReadConnection(UserRepository::count);
+            long expected = Math.max(Long.getLong("bloom.expectedUsers", 100000L), users * 2);
+            BloomFilter building = new BloomFilter(expected, FPP);
+            loading = building;
+            int[] lastId = {0};
+            int loaded = 0;
+            while (true) {
+                int[] page = {0};
+                DatabaseUtil.withReadConnection(conn -> {
+                    UserRepository.forEachEmailAfter(conn, lastId[0], LOAD_PAGE_SIZE, rs -> {
+                        building.put(normalize(rs.getString(2)));
+                        lastId[0] = rs.getInt(1);
+                        page[0]++;
+                    });
+                    return null;
+                });
+                loaded += page[0];
+                if (page[0] < LOAD_PAGE_SIZE) {
+                    break;
+                }
+            }
+            filter = building;
+            loading = null;
+            System.out.printf("邮箱过滤器加载完成: %d 个邮箱，%d KB，耗时 %d ms%n", loaded,
+                building.sizeInBytes() / 1024, (System.nanoTime() - start) / 1_000_000);
+        } catch (SQLException e) {
+            System.err.println("加载邮箱过滤器失败，注册时将逐个查库: " + e.getMessage());
+            e.printStackTrace();
+            loading = null;
+        }
+    }
+
+    public static boolean mightExist(String email) {
+        BloomFilter current = filter;
+        if (current == null) {
+            return true;
+        }
+        boolean maybe = current.mightContain(normalize(email));
+        (maybe ? positives : negatives).inc();
+        return maybe;
+    }
+
+    // 注册成功（或遇到唯一索引冲突）后调用
+    public static void add(String email) {
+        String key = normalize(email);
+        BloomFilter building = loading;
+        if (building != null) {
+            building.put(key);
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(key);
+        }
+    }
+
+    // 与 email 列的排序规则一致：大小写不敏感
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
+    }
+}
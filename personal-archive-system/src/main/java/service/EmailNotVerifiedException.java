@@ -0,0 +1,9 @@
+package service;
+
+// 密码正确但邮箱尚未验证，路由层返回 400 并记录 LOGIN_UNVERIFIED
+public class EmailNotVerifiedException extends RuntimeException {
+
+    public EmailNotVerifiedException() {
+        super("邮箱未验证，请先验证邮箱");
+    }
+}
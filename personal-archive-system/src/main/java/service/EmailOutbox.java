@@ -0,0 +1,228 @@
+package service;
+
+import util.DatabaseUtil;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 基于数据库的邮件发件箱：请求线程只负责 INSERT，发送由 EmailDispatcher 完成
+public class EmailOutbox {
+
+    private static final int MAX_ATTEMPTS = 8;
+    private static final long BASE_BACKOFF_SECONDS = 30;
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+    // 领取后的租约时间：发送线程崩溃时，超时的邮件会被重新领取
+    private static final long CLAIM_LEASE_SECONDS = 300;
+    // 积压超过该值时入队方短暂等待发送线程追赶（背压）
+    private static final int HIGH_WATERMARK = 5000;
+    private static final long ENQUEUE_WAIT_MS = 200;
+
+    private static final AtomicInteger pending = new AtomicInteger();
+    private static final Object drained = new Object();
+
+    public static class Entry {
+        final long id;
+        final String toEmail;
+        final String subject;
+        final String content;
+        final int attempts;
+
+        Entry(long id, String toEmail, String subject, String content, int attempts) {
+            this.id = id;
+            this.toEmail = toEmail;
+            this.subject = subject;
+            this.content = content;
+            this.attempts = attempts;
+        }
+    }
+
+    // 邮件入队
+    public static boolean enqueue(String toEmail, String subject, String content) {
+        applyBackpressure();
+
+        String sql = "INSERT INTO email_outbox (to_email, subject, content, next_attempt_at) VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, toEmail);
+            pstmt.setString(2, subject);
+            pstmt.setString(3, content);
+            pstmt.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
+
+            if (pstmt.executeUpdate() > 0) {
+                pending.incrementAndGet();
+                EmailDispatcher.wakeUp();
+                return true;
+            }
+        } catch (SQLException e) {
+            System.err.println("邮件入队失败: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    // 在调用方的事务中批量写入同一主题的邮件；事务提交后须调用 committed 唤醒发送线程
+    static void insertBatch(Connection conn, List<String> toEmails, String subject, List<String> contents) throws SQLException {
+        String sql = "INSERT INTO email_outbox (to_email, subject, content, next_attempt_at) VALUES (?, ?, ?, ?)";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            for (int i = 0; i < toEmails.size(); i++) {
+                pstmt.setString(1, toEmails.get(i));
+                pstmt.setString(2, subject);
+                pstmt.setString(3, contents.get(i));
+                pstmt.setTimestamp(4, now);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    static void committed(int count) {
+        pending.addAndGet(count);
+        EmailDispatcher.wakeUp();
+    }
+
+    // 积压过多时等待发送线程追赶，批量导入每批写入前调用
+    public static void awaitCapacity() {
+        applyBackpressure();
+    }
+
+    // 领取一批到期的邮件，并把它们的下次尝试时间推后一个租约周期
+    static List<Entry> claimBatch(int limit) {
+        String selectSql = "SELECT id, to_email, subject, content, attempts FROM email_outbox " +
+                          "WHERE status = 'PENDING' AND next_attempt_at <= ? ORDER BY next_attempt_at LIMIT ? " +
+                          "FOR UPDATE SKIP LOCKED";
+        String leaseSql = "UPDATE email_outbox SET next_attempt_at = ? WHERE id = ?";
+
+        List<Entry> batch = new ArrayList<>();
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement select = conn.prepareStatement(selectSql);
+                 PreparedStatement lease = conn.prepareStatement(leaseSql)) {
+
+                LocalDateTime now = LocalDateTime.now();
+                select.setTimestamp(1, Timestamp.valueOf(now));
+                select.setInt(2, limit);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        batch.add(new Entry(rs.getLong("id"), rs.getString("to_email"),
+                                rs.getString("subject"), rs.getString("content"), rs.getInt("attempts")));
+                    }
+                }
+
+                Timestamp leaseUntil = Timestamp.valueOf(now.plusSeconds(CLAIM_LEASE_SECONDS));
+                for (Entry entry : batch) {
+                    lease.setTimestamp(1, leaseUntil);
+                    lease.setLong(2, entry.id);
+                    lease.addBatch();
+                }
+                if (!batch.isEmpty()) {
+                    lease.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("领取待发邮件失败: " + e.getMessage());
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+        return batch;
+    }
+
+    // 发送成功：直接删除，保持发件箱表很小
+    static void markSent(Entry entry) {
+        String sql = "DELETE FROM email_outbox WHERE id = ?";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, entry.id);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("更新邮件状态失败: " + e.getMessage());
+            e.printStackTrace();
+        }
+        release();
+    }
+
+    // 发送失败：按指数退避重新排期，超过最大次数后标记为 FAILED
+    static void markFailed(Entry entry, String error) {
+        int attempts = entry.attempts + 1;
+        boolean giveUp = attempts >= MAX_ATTEMPTS;
+        long backoff = Math.min(BASE_BACKOFF_SECONDS << Math.min(entry.attempts, 16), MAX_BACKOFF_SECONDS);
+
+        String sql = "UPDATE email_outbox SET attempts = ?, status = ?, next_attempt_at = ?, last_error = ? WHERE id = ?";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, attempts);
+            pstmt.setString(2, giveUp ? "FAILED" : "PENDING");
+            pstmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now().plusSeconds(backoff)));
+            pstmt.setString(4, error == null ? null : error.substring(0, Math.min(error.length(), 500)));
+            pstmt.setLong(5, entry.id);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("更新邮件状态失败: " + e.getMessage());
+            e.printStackTrace();
+        }
+        if (giveUp) {
+            System.err.println("邮件多次发送失败，已放弃: " + entry.toEmail);
+            release();
+        }
+    }
+
+    // 启动时统计积压数量，用于背压判断
+    static void loadPendingCount() {
+        String sql = "SELECT COUNT(*) FROM email_outbox WHERE status = 'PENDING'";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+
+            if (rs.next()) {
+                pending.set(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            System.err.println("统计待发邮件失败: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    public static int pendingCount() {
+        return pending.get();
+    }
+
+    private static void applyBackpressure() {
+        if (pending.get() < HIGH_WATERMARK) {
+            return;
+        }
+        synchronized (drained) {
+            if (pending.get() >= HIGH_WATERMARK) {
+                try {
+                    drained.wait(ENQUEUE_WAIT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static void release() {
+        if (pending.decrementAndGet() < HIGH_WATERMARK) {
+            synchronized (drained) {
+                drained.notifyAll();
+            }
+        }
+    }
+}
@@ -2,29 +2,55 @@ package service;
 
 import javax.mail.*;
 import javax.mail.internet.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 public class EmailService {
-    
-    // 配置你的邮箱信息（以QQ邮箱为例）
-    private static final String SMTP_HOST = "smtp.qq.com";
-    private static final String SMTP_PORT = "587";
-    private static final String USERNAME = "your_email@qq.com";  // 改成你的邮箱
-    private static final String PASSWORD = "your_smtp_password"; // 改成你的SMTP授权码
-    private static final String FROM_EMAIL = "your_email@qq.com"; // 改成你的邮箱
-    
+
+    // 配置你的邮箱信息（以QQ邮箱为例），可通过 -Dsmtp.host 等系统属性覆盖（例如指向本地测试用 SMTP 服务）
+    private static final String SMTP_HOST = System.getProperty("smtp.host", "smtp.qq.com");
+    private static final String SMTP_PORT = System.getProperty("smtp.port", "587");
+    private static final String USERNAME = System.getProperty("smtp.username", "your_email@qq.com");  // 改成你的邮箱
+    private static final String PASSWORD = System.getProperty("smtp.password", "your_smtp_password"); // 改成你的SMTP授权码
+    private static final String FROM_EMAIL = System.getProperty("smtp.from", "your_email@qq.com"); // 改成你的邮箱
+    private static final boolean STARTTLS = Boolean.parseBoolean(System.getProperty("smtp.starttls", "true"));
+
+    // 会话只创建一次，由发送线程复用
+    private static final Session session = createSession();
+
+    private static final String VERIFICATION_SUBJECT = "请验证您的邮箱地址 - 个人档案管理系统";
+
     public static void sendVerificationEmail(String toEmail, String verificationCode) {
-        String subject = "请验证您的邮箱地址 - 个人档案管理系统";
+        sendEmail(toEmail, VERIFICATION_SUBJECT, verificationContent(toEmail, verificationCode));
+    }
+
+    // 注册与批量导入：在调用方事务中把验证邮件写入发件箱，事务提交后调用 verificationEmailsCommitted 唤醒发送线程
+    public static void queueVerificationEmails(Connection conn, List<String> toEmails, List<String> verificationCodes)
+            throws SQLException {
+        List<String> contents = new ArrayList<>(toEmails.size());
+        for (int i = 0; i < toEmails.size(); i++) {
+            contents.add(verificationContent(toEmails.get(i), verificationCodes.get(i)));
+        }
+        EmailOutbox.insertBatch(conn, toEmails, VERIFICATION_SUBJECT, contents);
+    }
+
+    public static void verificationEmailsCommitted(int count) {
+        EmailOutbox.committed(count);
+    }
+
+    private static String verificationContent(String toEmail, String verificationCode) {
         String verificationLink = "http://localhost:4567/verify?email=" + toEmail + "&code=" + verificationCode;
         String content = "<h3>欢迎注册个人档案管理系统</h3>" +
                         "<p>请点击以下链接验证您的邮箱地址：</p>" +
                         "<a href=\"" + verificationLink + "\">" + verificationLink + "</a>" +
                         "<p>如果链接无法点击，请复制以上链接到浏览器地址栏中打开。</p>" +
                         "<p>此链接24小时内有效。</p>";
-        
-        sendEmail(toEmail, subject, content);
+        return content;
     }
-    
+
     public static void sendPasswordResetEmail(String toEmail, String resetToken) {
         String subject = "重置您的密码 - 个人档案管理系统";
         String resetLink = "http://localhost:4567/reset-password?token=" + resetToken + "&email=" + toEmail;
@@ -33,35 +59,52 @@ public class EmailService {
                         "<a href=\"" + resetLink + "\">" + resetLink + "</a>" +
                         "<p>如果这不是您发起的请求，请忽略此邮件。</p>" +
                         "<p>此链接1小时内有效。</p>";
-        
+
         sendEmail(toEmail, subject, content);
     }
-    
+
+    // 邮件写入发件箱后立即返回，由 EmailDispatcher 在后台发送
     private static void sendEmail(String toEmail, String subject, String content) {
+        if (!EmailOutbox.enqueue(toEmail, subject, content)) {
+            System.err.println("邮件入队失败: " + toEmail);
+        }
+    }
+
+    private static Session createSession() {
         Properties props = new Properties();
         props.put("mail.smtp.host", SMTP_HOST);
         props.put("mail.smtp.port", SMTP_PORT);
-        props.put("mail.smtp.auth", "true");
-        props.put("mail.smtp.starttls.enable", "true");
-        
-        Session session = Session.getInstance(props, new Authenticator() {
-            protected PasswordAuthentication getPasswordAuthentication() {
-                return new PasswordAuthentication(USERNAME, PASSWORD);
-            }
-        });
-        
-        try {
-            Message message = new MimeMessage(session);
-            message.setFrom(new InternetAddress(FROM_EMAIL));
-            message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(toEmail));
-            message.setSubject(subject);
-            message.setContent(content, "text/html; charset=utf-8");
-            
-            Transport.send(message);
-            System.out.println("邮件发送成功至: " + toEmail);
-        } catch (MessagingException e) {
-            System.err.println("邮件发送失败: " + e.getMessage());
-            e.printStackTrace();
+        props.put("mail.smtp.auth", String.valueOf(isAuthEnabled()));
+        props.put("mail.smtp.starttls.enable", String.valueOf(STARTTLS));
+        props.put("mail.smtp.connectiontimeout", "10000");
+        props.put("mail.smtp.timeout", "10000");
+        props.put("mail.smtp.writetimeout", "10000");
+        return Session.getInstance(props);
+    }
+
+    // 未配置用户名时（如本地测试 SMTP 服务）不做认证
+    private static boolean isAuthEnabled() {
+        return USERNAME != null && !USERNAME.isEmpty();
+    }
+
+    // 打开一个长连接，供发送线程批量发送
+    static Transport openTransport() throws MessagingException {
+        Transport transport = session.getTransport("smtp");
+        if (isAuthEnabled()) {
+            transport.connect(SMTP_HOST, Integer.parseInt(SMTP_PORT), USERNAME, PASSWORD);
+        } else {
+            transport.connect();
         }
+        return transport;
+    }
+
+    static MimeMessage buildMessage(String toEmail, String subject, String content) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setFrom(new InternetAddress(FROM_EMAIL));
+        message.setRecipients(Message.RecipientType.TO, InternetAddress.parse(toEmail));
+        message.setSubject(subject, "utf-8");
+        message.setContent(content, "text/html; charset=utf-8");
+        message.saveChanges();
+        return message;
     }
-}
\ No newline at end of file
+}
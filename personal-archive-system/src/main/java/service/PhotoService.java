@@ -0,0 +1,204 @@
+package service;
+
+import dto.PhotoUploadResponse;
+import repository.PhotoRepository;
+import util.BlobStore;
+import util.DatabaseUtil;
+import util.MultipartReader;
+import util.PayloadTooLargeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.HexFormat;
+
+// 照片上传：请求体边读边写入磁盘并计算 SHA-256，按内容寻址存储，相同照片只保存一份
+public class PhotoService {
+
+    public static final long MAX_PHOTO_BYTES = Long.getLong("upload.maxPhotoMB", 20L) * 1024 * 1024;
+    // multipart 分段头等额外开销的余量
+    private static final long MULTIPART_OVERHEAD = 64 * 1024;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    // 读取 multipart 请求中的第一个文件分段并保存
+    public static PhotoUploadResponse upload(int userId, String contentType, long contentLength,
+                                             InputStream in) throws IOException, SQLException {
+        // 声明的长度已超限时不读请求体，直接拒绝
+        if (contentLength > MAX_PHOTO_BYTES + MULTIPART_OVERHEAD) {
+            throw new PayloadTooLargeException(tooLargeMessage());
+        }
+        String boundary = MultipartReader.boundaryOf(contentType);
+        if (boundary == null) {
+            throw new IllegalArgumentException("请使用 multipart/form-data 上传照片");
+        }
+        MultipartReader reader = new MultipartReader(in, boundary);
+        MultipartReader.Part part;
+        while ((part = reader.next()) != null) {
+            if (part.filename != null) {
+                return store(userId, part.body);
+            }
+        }
+        throw new IllegalArgumentException("未找到上传的照片");
+    }
+
+    private static PhotoUploadResponse store(int userId, InputStream body) throws IOException, SQLException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+
+        Path temp = BlobStore.createTempFile();
+        try {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            String type = null;
+            long size = 0;
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                int n;
+                while ((n = readChunk(body, chunk)) > 0) {
+                    if (type == null) {
+                        type = sniffImageType(chunk, n);
+                        if (type == null) {
+                            throw new IllegalArgumentException("仅支持 JPEG、PNG、GIF、WebP 图片");
+                        }
+                    }
+                    size += n;
+                    if (size > MAX_PHOTO_BYTES) {
+                        throw new PayloadTooLargeException(tooLargeMessage());
+                    }
+                    digest.update(chunk, 0, n);
+                    buffer.clear().limit(n);
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                }
+            }
+            if (size == 0) {
+                throw new IllegalArgumentException("上传的文件为空");
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            checkQuota(userId, hash, size);
+            boolean stored = BlobStore.commit(temp, hash);
+            return record(userId, hash, size, type, !stored);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // 用户已有这张照片时不占用新的配额
+    private static void checkQuota(int userId, String hash, long size) throws SQLException {
+        DatabaseUtil.withConnection(conn -> {
+            if (PhotoRepository.findContentType(conn, userId, hash) == null) {
+                StatsService.checkQuota(conn, userId, size);
+            }
+            return null;
+        });
+    }
+
+    private static PhotoUploadResponse record(int userId, String hash, long size, String type,
+                                              boolean deduplicated) throws SQLException {
+        // 返回写入后的数据版本号，存储量没有变化时为 -1
+        long version = DatabaseUtil.inTransaction(conn -> {
+            PhotoRepository.insertPhoto(conn, hash, size, type);
+            // 同一用户重复上传同一张照片不重复计入存储量；超出配额时整个事务回滚
+            if (PhotoRepository.addOwner(conn, userId, hash)) {
+                return StatsService.onStorageAdded(conn, userId, size);
+            }
+            return -1L;
+        });
+        if (version >= 0) {
+            StatsService.invalidate(userId);
+            ChangeFeed.statsChanged(userId, version);
+        }
+        ThumbnailService.submit(hash);
+
+        return new PhotoUploadResponse(true, hash, photoUrl(hash), photoUrl(hash) + "/thumb", size, type, deduplicated);
+    }
+
+    public static String photoUrl(String hash) {
+        return "/api/user/photos/" + hash;
+    }
+
+    // 从用户的照片中移除并扣减存储量；用户没有这张照片时返回 false
+    public static boolean remove(int userId, String hash) throws SQLException {
+        if (!BlobStore.isValidHash(hash)) {
+            return false;
+        }
+        long version = DatabaseUtil.inTransaction(conn -> {
+            long size = PhotoRepository.removeOwner(conn, userId, hash);
+            if (size < 0) {
+                return -1L;
+            }
+            return StatsService.onStorageChanged(conn, userId, -size);
+        });
+        if (version < 0) {
+            return false;
+        }
+        StatsService.invalidate(userId);
+        ChangeFeed.statsChanged(userId, version);
+        return true;
+    }
+
+    // 用户有权访问时返回照片类型，否则返回 null
+    public static String contentTypeFor(int userId, String hash) throws SQLException {
+        if (!BlobStore.isValidHash(hash)) {
+            return null;
+        }
+        return DatabaseUtil.withReadConnection(conn -> PhotoRepository.findContentType(conn, userId, hash));
+    }
+
+    // 缩略图还没生成好时重新排队，并退回原图
+    public static Path thumbnailOrOriginal(String hash) {
+        Path thumbnail = BlobStore.thumbnailPathFor(hash);
+        if (Files.exists(thumbnail)) {
+            return thumbnail;
+        }
+        ThumbnailService.submit(hash);
+        return BlobStore.pathFor(hash);
+    }
+
+    // 尽量读满一块，便于识别文件头并减少小块写入
+    private static int readChunk(InputStream in, byte[] chunk) throws IOException {
+        int total = 0;
+        while (total < chunk.length) {
+            int n = in.read(chunk, total, chunk.length - total);
+            if (n < 0) {
+                break;
+            }
+            total += n;
+        }
+        return total;
+    }
+
+    // 按文件头识别图片类型，不信任客户端声明的 Content-Type
+    private static String sniffImageType(byte[] b, int n) {
+        if (n >= 3 && (b[0] & 0xff) == 0xFF && (b[1] & 0xff) == 0xD8 && (b[2] & 0xff) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (n >= 8 && (b[0] & 0xff) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G') {
+            return "image/png";
+        }
+        if (n >= 6 && b[0] == 'G' && b[1] == 'I' && b[2] == 'F' && b[3] == '8') {
+            return "image/gif";
+        }
+        if (n >= 12 && b[0] == 'R' && b[1] == 'I' && b[2] == 'F' && b[3] == 'F'
+                && b[8] == 'W' && b[9] == 'E' && b[10] == 'B' && b[11] == 'P') {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    private static String tooLargeMessage() {
+        return "照片不能超过 " + MAX_PHOTO_BYTES / (1024 * 1024) + "MB";
+    }
+}
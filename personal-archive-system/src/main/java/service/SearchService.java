@@ -0,0 +1,134 @@
+package service;
+
+import dto.AchievementView;
+import dto.SearchResult;
+import model.Achievement;
+import repository.AchievementRepository;
+import repository.SearchIndexRepository;
+import util.CjkTokenizer;
+import util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+
+// 成就全文搜索：写入成就时在同一事务中增量更新倒排表，查询时只读命中的词项
+public class SearchService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 50;
+    // 搜索结果只支持有限深度的翻页
+    private static final int MAX_OFFSET = 500;
+    private static final int MAX_QUERY_TERMS = 16;
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int TAG_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    private static final int REINDEX_BATCH = 500;
+
+    // 建立（或重建）单条成就的索引，须与成就写入在同一事务中调用
+    public static void index(Connection conn, int userId, long achievementId, String title, String description,
+                             List<String> tags) throws SQLException {
+        Map<String, Integer> terms = new HashMap<>();
+        CjkTokenizer.addTerms(title, TITLE_WEIGHT, terms);
+        CjkTokenizer.addTerms(description, DESCRIPTION_WEIGHT, terms);
+        for (String tag : tags) {
+            CjkTokenizer.addTerms(tag, TAG_WEIGHT, terms);
+        }
+        SearchIndexRepository.deleteForAchievement(conn, achievementId);
+        SearchIndexRepository.insertTerms(conn, userId, achievementId, terms);
+    }
+
+    public static void index(Connection conn, Achievement achievement) throws SQLException {
+        index(conn, achievement.getUserId(), achievement.getId(), achievement.getTitle(),
+              achievement.getDescription(), achievement.getTags());
+    }
+
+    public static void remove(Connection conn, long achievementId) throws SQLException {
+        SearchIndexRepository.deleteForAchievement(conn, achievementId);
+    }
+
+    // 搜索：所有关键词都需命中，按权重排序
+    public static SearchResult search(int userId, String query, int page, int limit) throws SQLException {
+        int pageSize = limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        int pageNo = Math.max(page, 1);
+        // 按 long 计算，页码很大时不会溢出成负数或很小的偏移而绕过深度限制
+        long requestedOffset = (long) (pageNo - 1) * pageSize;
+
+        List<String> terms = new ArrayList<>(CjkTokenizer.queryTerms(query));
+        if (terms.isEmpty() || requestedOffset > MAX_OFFSET) {
+            return new SearchResult(List.of(), pageNo, false);
+        }
+        int offset = (int) requestedOffset;
+        if (terms.size() > MAX_QUERY_TERMS) {
+            terms = terms.subList(0, MAX_QUERY_TERMS);
+        }
+        // 单个汉字和字母数字词按前缀匹配，其余（汉字二元组）精确匹配
+        boolean[] prefix = new boolean[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            String term = terms.get(i);
+            int first = term.codePointAt(0);
+            prefix[i] = !CjkTokenizer.isCjk(first) || term.length() == Character.charCount(first);
+        }
+
+        List<String> queryTerms = terms;
+        List<AchievementView> items = new ArrayList<>();
+        boolean hasMore = DatabaseUtil.withReadConnection(conn -> {
+            // 多取一条判断是否还有下一页
+            List<Long> ids = SearchIndexRepository.search(conn, userId, queryTerms, prefix, pageSize + 1, offset);
+            boolean more = ids.size() > pageSize;
+            if (more) {
+                ids = ids.subList(0, pageSize);
+            }
+            Map<Long, Achievement> found = AchievementRepository.findByIds(conn, userId, ids);
+            for (Long id : ids) {
+                Achievement achievement = found.get(id);
+                if (achievement != null) {
+                    items.add(AchievementView.of(achievement));
+                }
+            }
+            return more;
+        });
+        return new SearchResult(items, pageNo, hasMore);
+    }
+
+    // 为已有数据重建索引（升级或修复时使用），按主键分批处理
+    public static void reindexAll() {
+        long lastId = 0;
+        int total = 0;
+        try {
+            while (true) {
+                long afterId = lastId;
+                List<Achievement> batch = new ArrayList<>();
+                DatabaseUtil.withConnection(conn -> {
+                    AchievementRepository.forEachForIndex(conn, afterId, REINDEX_BATCH, rs -> {
+                        Achievement achievement = new Achievement();
+                        achievement.setId(rs.getLong(1));
+                        achievement.setUserId(rs.getInt(2));
+                        achievement.setTitle(rs.getString(3));
+                        achievement.setDescription(rs.getString(4));
+                        achievement.setTags(AchievementRepository.splitTags(rs.getString(5)));
+                        batch.add(achievement);
+                    });
+                    return null;
+                });
+                if (batch.isEmpty()) {
+                    break;
+                }
+                DatabaseUtil.inTransaction(conn -> {
+                    for (Achievement achievement : batch) {
+                        index(conn, achievement);
+                    }
+                    return null;
+                });
+                total += batch.size();
+                lastId = batch.get(batch.size() - 1).getId();
+            }
+            System.out.println("搜索索引重建完成: " + total);
+        } catch (SQLException e) {
+            System.err.println("搜索索引重建失败: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
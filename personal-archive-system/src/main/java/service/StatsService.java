@@ -0,0 +1,198 @@
+package service;
+
+import dto.StatsView;
+import model.Achievement;
+import repository.AchievementRepository;
+import repository.PhotoRepository;
+import repository.StatsRepository;
+import util.DatabaseUtil;
+import util.LruCache;
+import util.PayloadTooLargeException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+// 个人统计：成就写入时在同一事务中增量维护聚合表，读取只需一次主键查询（并有短期进程内缓存）
+public class StatsService {
+
+    private static final long STORAGE_TOTAL_MB = Long.getLong("storage.quotaMB", 1024L);
+    private static final long STORAGE_QUOTA_BYTES = STORAGE_TOTAL_MB * 1024 * 1024;
+
+    private static final LruCache<Integer, StatsRepository.Totals> cache =
+        new LruCache<>(Integer.getInteger("cache.stats.size", 10000), 60, 60, TimeUnit.SECONDS);
+
+    public static StatsView getStats(int userId) throws SQLException {
+        return view(getTotals(userId));
+    }
+
+    // 带版本号的统计数字，ETag 取自其中的版本号，与返回的数字一致
+    public static StatsRepository.Totals getTotals(int userId) throws SQLException {
+        // 缓存只从主库加载，避免把副本上的旧数据缓存下来
+        return cache.get(userId, key ->
+            DatabaseUtil.withConnection(conn -> StatsRepository.find(conn, key, LocalDate.now().getYear())));
+    }
+
+    // 写入提交后立即读取（读主库、不经缓存），供变更推送使用
+    static StatsView getFreshStats(int userId) throws SQLException {
+        return view(DatabaseUtil.withConnection(conn -> StatsRepository.find(conn, userId, LocalDate.now().getYear())));
+    }
+
+    public static StatsView view(StatsRepository.Totals totals) {
+        return new StatsView(totals.totalAchievements, totals.thisYear, totals.distinctTags,
+            Math.round(totals.storageBytes / (1024.0 * 1024.0)), STORAGE_TOTAL_MB);
+    }
+
+    // 以下 on* 方法须在成就写入的同一事务中调用，返回写入后的数据版本号（见 UserVersions）
+    public static long onCreated(Connection conn, Achievement achievement) throws SQLException {
+        int userId = achievement.getUserId();
+        StatsRepository.addToYear(conn, userId, achievement.getDate().getYear(), 1);
+        int newTags = 0;
+        for (String tag : achievement.getTags()) {
+            if (StatsRepository.incrementTag(conn, userId, tag)) {
+                newTags++;
+            }
+        }
+        return addTotals(conn, userId, 1, newTags, 0);
+    }
+
+    public static long onUpdated(Connection conn, Achievement before, Achievement after) throws SQLException {
+        int userId = after.getUserId();
+        int oldYear = before.getDate().getYear();
+        int newYear = after.getDate().getYear();
+        if (oldYear != newYear) {
+            StatsRepository.addToYear(conn, userId, oldYear, -1);
+            StatsRepository.addToYear(conn, userId, newYear, 1);
+        }
+
+        Set<String> removed = new HashSet<>(before.getTags());
+        removed.removeAll(after.getTags());
+        Set<String> added = new HashSet<>(after.getTags());
+        added.removeAll(before.getTags());
+
+        int delta = 0;
+        for (String tag : removed) {
+            if (StatsRepository.decrementTag(conn, userId, tag)) {
+                delta--;
+            }
+        }
+        for (String tag : added) {
+            if (StatsRepository.incrementTag(conn, userId, tag)) {
+                delta++;
+            }
+        }
+        return addTotals(conn, userId, 0, delta, 0);
+    }
+
+    public static long onDeleted(Connection conn, Achievement achievement) throws SQLException {
+        int userId = achievement.getUserId();
+        StatsRepository.addToYear(conn, userId, achievement.getDate().getYear(), -1);
+        int goneTags = 0;
+        for (String tag : achievement.getTags()) {
+            if (StatsRepository.decrementTag(conn, userId, tag)) {
+                goneTags++;
+            }
+        }
+        return addTotals(conn, userId, -1, -goneTags, 0);
+    }
+
+    public static long onStorageChanged(Connection conn, int userId, long deltaBytes) throws SQLException {
+        return addTotals(conn, userId, 0, 0, deltaBytes);
+    }
+
+    // 计入新上传的照片；加上后超出配额时抛出 PayloadTooLargeException，调用方的事务随之回滚。
+    // 先递增再检查：统计行已被本事务锁定，同一用户的并发上传依次检查，不会一起越过配额
+    public static long onStorageAdded(Connection conn, int userId, long bytes) throws SQLException {
+        long version = addTotals(conn, userId, 0, 0, bytes);
+        if (StatsRepository.storageBytes(conn, userId) > STORAGE_QUOTA_BYTES) {
+            throw new PayloadTooLargeException(quotaMessage());
+        }
+        return version;
+    }
+
+    // 上传前的预检（不加锁），明显超出配额时不必保存文件；以 onStorageAdded 的检查为准
+    public static void checkQuota(Connection conn, int userId, long bytes) throws SQLException {
+        if (StatsRepository.storageBytes(conn, userId) + bytes > STORAGE_QUOTA_BYTES) {
+            throw new PayloadTooLargeException(quotaMessage());
+        }
+    }
+
+    private static String quotaMessage() {
+        return "存储空间不足，每个用户最多 " + STORAGE_TOTAL_MB + "MB";
+    }
+
+    private static long addTotals(Connection conn, int userId, int achievements, int distinctTags,
+                                  long storageBytes) throws SQLException {
+        StatsRepository.addTotals(conn, userId, achievements, distinctTags, storageBytes);
+        // 行已被本事务锁定，读到的就是本次写入的版本号
+        return StatsRepository.version(conn, userId);
+    }
+
+    // 事务提交后调用，让下一次读取拿到新数据
+    public static void invalidate(int userId) {
+        cache.invalidate(userId);
+    }
+
+    // 从成就表和照片归属重新计算某个用户的聚合数据，用于修复偏差
+    public static void rebuild(int userId) throws SQLException {
+        long version = DatabaseUtil.inTransaction(conn -> {
+            StatsRepository.deleteForUser(conn, userId);
+
+            Map<Integer, Integer> years = new HashMap<>();
+            Map<String, Integer> tagCounts = new HashMap<>();
+            int total = 0;
+            String sql = "SELECT achieved_on, tags FROM achievements WHERE user_id = ? FOR UPDATE";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, userId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        total++;
+                        years.merge(rs.getObject(1, LocalDate.class).getYear(), 1, Integer::sum);
+                        for (String tag : AchievementRepository.splitTags(rs.getString(2))) {
+                            tagCounts.merge(tag, 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+
+            for (Map.Entry<Integer, Integer> year : years.entrySet()) {
+                StatsRepository.addToYear(conn, userId, year.getKey(), year.getValue());
+            }
+            for (Map.Entry<String, Integer> tag : tagCounts.entrySet()) {
+                StatsRepository.addToTag(conn, userId, tag.getKey(), tag.getValue());
+            }
+            // 存储量来自照片归属，不在成就表中
+            long storage = PhotoRepository.storageBytes(conn, userId);
+            return addTotals(conn, userId, total, tagCounts.size(), storage);
+        });
+        invalidate(userId);
+        ChangeFeed.statsChanged(userId, version);
+    }
+
+    // 为所有用户重建聚合数据（升级或修复时使用），逐个用户提交
+    public static void rebuildAll() {
+        List<Integer> userIds = new ArrayList<>();
+        try {
+            DatabaseUtil.withConnection(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM users ORDER BY id");
+                     ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        userIds.add(rs.getInt(1));
+                    }
+                }
+                return null;
+            });
+            for (int userId : userIds) {
+                rebuild(userId);
+            }
+            System.out.println("统计数据重建完成，用户数: " + userIds.size());
+        } catch (SQLException e) {
+            System.err.println("统计数据重建失败: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
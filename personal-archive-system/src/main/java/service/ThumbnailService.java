@@ -0,0 +1,110 @@
+package service;
+
+import util.BlobStore;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.*;
+
+// 缩略图在有界后台线程池中生成，不占用请求线程；队列满时直接放弃，访问缩略图时会重新排队
+public class ThumbnailService {
+
+    private static final int MAX_SIZE = Integer.getInteger("thumbnail.size", 320);
+    private static final int WORKERS = Integer.getInteger("thumbnail.workers", 1);
+    private static final int QUEUE_CAPACITY = Integer.getInteger("thumbnail.queue", 64);
+
+    // 正在排队或生成中的哈希，避免重复提交
+    private static final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    static {
+        System.setProperty("java.awt.headless", "true");
+    }
+
+    public static void submit(String hash) {
+        if (Files.exists(BlobStore.thumbnailPathFor(hash)) || !pending.add(hash)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(hash);
+                } catch (Exception e) {
+                    System.err.println("生成缩略图失败 " + hash + ": " + e.getMessage());
+                } finally {
+                    pending.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(hash);
+        }
+    }
+
+    private static void generate(String hash) throws IOException {
+        Path source = BlobStore.pathFor(hash);
+        BufferedImage image;
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                // 没有对应解码器（如 WebP），只提供原图
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // 按比例隔行采样解码，手机大图也不会整张解码进内存
+                int step = Math.max(1, Math.max(reader.getWidth(0), reader.getHeight(0)) / (MAX_SIZE * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                image = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        double scale = Math.min(1.0, (double) MAX_SIZE / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = thumbnail.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            // 透明背景（PNG/GIF）铺白色
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+
+        Path temp = BlobStore.createTempFile();
+        try {
+            ImageIO.write(thumbnail, "jpg", temp.toFile());
+            BlobStore.moveInto(temp, BlobStore.thumbnailPathFor(hash));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), runnable -> {
+                Thread thread = new Thread(runnable, "thumbnail-worker");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,99 @@
+package service;
+
+import repository.TokenRepository;
+import util.DatabaseUtil;
+import util.TokenUtil;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 一次性令牌（邮箱验证、密码重置）的签发、消费与过期清理
+public class TokenService {
+
+    public static final String VERIFY = "VERIFY";
+    public static final String RESET = "RESET";
+
+    private static final long REAPER_INTERVAL_MINUTES = 5;
+    // 每批只删少量行并短暂停顿，避免长时间持锁
+    private static final int REAPER_BATCH = 500;
+    private static final long REAPER_PAUSE_MS = 50;
+
+    private static ScheduledExecutorService reaper;
+
+    // 签发令牌，返回发给用户的明文；数据库只保存哈希
+    public static String issue(Connection conn, int userId, String purpose, Duration ttl) throws SQLException {
+        String token = TokenUtil.newToken();
+        TokenRepository.insert(conn, TokenUtil.sha256Hex(token), userId, purpose, LocalDateTime.now().plus(ttl));
+        return token;
+    }
+
+    // 批量签发（导入用户），返回与 userIds 顺序对应的明文令牌
+    public static List<String> issueAll(Connection conn, int[] userIds, String purpose, Duration ttl) throws SQLException {
+        List<String> tokens = new ArrayList<>(userIds.length);
+        List<String> hashes = new ArrayList<>(userIds.length);
+        for (int i = 0; i < userIds.length; i++) {
+            String token = TokenUtil.newToken();
+            tokens.add(token);
+            hashes.add(TokenUtil.sha256Hex(token));
+        }
+        TokenRepository.insertBatch(conn, hashes, userIds, purpose, LocalDateTime.now().plus(ttl));
+        return tokens;
+    }
+
+    // 同一用户重新申请时作废旧令牌
+    public static String reissue(Connection conn, int userId, String purpose, Duration ttl) throws SQLException {
+        TokenRepository.deleteForUser(conn, userId, purpose);
+        return issue(conn, userId, purpose, ttl);
+    }
+
+    // 检查令牌是否有效（不消费），返回用户 id
+    public static Integer peek(Connection conn, String token, String purpose) throws SQLException {
+        return TokenRepository.findUserId(conn, TokenUtil.sha256Hex(token), purpose, LocalDateTime.now());
+    }
+
+    // 消费令牌，必须在事务中调用；返回用户 id，无效或已使用返回 null
+    public static Integer consume(Connection conn, String token, String purpose) throws SQLException {
+        return TokenRepository.consume(conn, TokenUtil.sha256Hex(token), purpose, LocalDateTime.now());
+    }
+
+    public static synchronized void startReaper() {
+        if (reaper != null) {
+            return;
+        }
+        reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "token-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        reaper.scheduleWithFixedDelay(TokenService::reapExpired, 1, REAPER_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    private static void reapExpired() {
+        int total = 0;
+        try {
+            int deleted;
+            do {
+                deleted = DatabaseUtil.withConnection(conn ->
+                    TokenRepository.deleteExpired(conn, LocalDateTime.now(), REAPER_BATCH));
+                total += deleted;
+                if (deleted == REAPER_BATCH) {
+                    Thread.sleep(REAPER_PAUSE_MS);
+                }
+            } while (deleted == REAPER_BATCH);
+        } catch (SQLException e) {
+            System.err.println("清理过期令牌失败: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (total > 0) {
+            System.out.println("已清理过期令牌: " + total);
+        }
+    }
+}
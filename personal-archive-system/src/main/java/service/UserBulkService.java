@@ -0,0 +1,301 @@
+package service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import dto.RegisterRequest;
+import dto.ValidationException;
+import model.User;
+import repository.UserRepository;
+import util.DatabaseUtil;
+import util.PasswordUtil;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.*;
+
+// 批量导入/导出用户（部门入职等场景），按批流式处理，内存占用与文件大小无关。
+// 导入：每批先一次查询过滤已存在的邮箱，密码按 CPU 核数并行哈希，
+// 用户、验证令牌和验证邮件在同一事务中批量写入，邮件由 EmailDispatcher 异步发送
+public class UserBulkService {
+
+    public static final String CSV = "csv";
+    public static final String JSONL = "jsonl";
+
+    private static final int BATCH_SIZE = Integer.getInteger("import.batchSize", 500);
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
+    private static final JsonFactory jsonFactory = new JsonFactory()
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    public static final class ImportResult {
+        public int lines;
+        public int imported;
+        public int skipped;
+        public int invalid;
+    }
+
+    // 按文件扩展名判断格式，默认 CSV
+    public static String formatOf(String path) {
+        String lower = path.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".jsonl") || lower.endsWith(".ndjson") ? JSONL : CSV;
+    }
+
+    // CSV 首行为表头，需包含 email、password、username 三列；JSONL 每行一个 {"email","password","username"}
+    public static ImportResult importUsers(InputStream in, String format) throws IOException, SQLException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        ImportResult result = new ImportResult();
+        int[] columns = null;
+        if (CSV.equals(format)) {
+            String header = reader.readLine();
+            result.lines++;
+            columns = csvColumns(header);
+        }
+
+        List<RegisterRequest> batch = new ArrayList<>(BATCH_SIZE);
+        Set<String> batchEmails = new HashSet<>();
+        long start = System.nanoTime();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            result.lines++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                RegisterRequest row = columns != null ? parseCsv(line, columns) : RegisterRequest.READER.readValue(line);
+                row.validate();
+                // 同一批内重复的邮箱只保留第一条；跨批的重复由数据库查询过滤
+                if (!batchEmails.add(row.email().toLowerCase(Locale.ROOT))) {
+                    result.skipped++;
+                    continue;
+                }
+                batch.add(row);
+            } catch (ValidationException | IOException e) {
+                result.invalid++;
+                System.err.println("第 " + result.lines + " 行无效: " + e.getMessage());
+            }
+            if (batch.size() == BATCH_SIZE) {
+                importBatch(batch, result);
+                batch.clear();
+                batchEmails.clear();
+                printProgress(result, start);
+            }
+        }
+        if (!batch.isEmpty()) {
+            importBatch(batch, result);
+        }
+        printProgress(result, start);
+        return result;
+    }
+
+    private static void importBatch(List<RegisterRequest> rows, ImportResult result) throws SQLException {
+        List<String> emails = new ArrayList<>(rows.size());
+        for (RegisterRequest row : rows) {
+            emails.add(row.email());
+        }
+        Set<String> existing = DatabaseUtil.withConnection(conn -> UserRepository.findExistingEmails(conn, emails));
+
+        List<RegisterRequest> fresh = new ArrayList<>(rows.size());
+        for (RegisterRequest row : rows) {
+            if (existing.contains(row.email().toLowerCase(Locale.ROOT))) {
+                result.skipped++;
+            } else {
+                fresh.add(row);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+
+        // 哈希在取连接之前完成
+        List<String> passwords = new ArrayList<>(fresh.size());
+        for (RegisterRequest row : fresh) {
+            passwords.add(row.password());
+        }
+        List<String> hashes = PasswordUtil.hashPasswords(passwords);
+        List<User> users = new ArrayList<>(fresh.size());
+        List<String> freshEmails = new ArrayList<>(fresh.size());
+        for (int i = 0; i < fresh.size(); i++) {
+            RegisterRequest row = fresh.get(i);
+            User user = new User(0, row.email(), row.username(), false);
+            user.setPasswordHash(hashes.get(i));
+            users.add(user);
+            freshEmails.add(row.email());
+        }
+
+        EmailOutbox.awaitCapacity();
+        int[] ids = DatabaseUtil.inTransaction(conn -> {
+            int[] inserted = UserRepository.insertBatch(conn, users);
+            List<String> codes = TokenService.issueAll(conn, inserted, TokenService.VERIFY, Duration.ofHours(24));
+            EmailService.queueVerificationEmails(conn, freshEmails, codes);
+            return inserted;
+        });
+        EmailService.verificationEmailsCommitted(users.size());
+        for (int i = 0; i < ids.length; i++) {
+            EmailFilter.add(freshEmails.get(i));
+            UserCache.invalidate(ids[i]);
+        }
+        result.imported += users.size();
+    }
+
+    // 按主键分段读出全部用户（不含密码哈希），返回导出行数
+    public static int exportUsers(OutputStream out, String format) throws IOException, SQLException {
+        Writer csv = null;
+        JsonGenerator json = null;
+        if (CSV.equals(format)) {
+            csv = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            csv.write("id,email,username,is_verified,created_at\n");
+        } else {
+            json = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+            json.setRootValueSeparator(null);
+        }
+
+        int[] lastId = {0};
+        int total = 0;
+        long start = System.nanoTime();
+        Writer csvOut = csv;
+        JsonGenerator jsonOut = json;
+        while (true) {
+            int[] count = {0};
+            try {
+                DatabaseUtil.withReadConnection(conn -> {
+                    UserRepository.forEachAfter(conn, lastId[0], EXPORT_PAGE_SIZE, rs -> {
+                        int id = rs.getInt(1);
+                        Timestamp createdAt = rs.getTimestamp(5);
+                        String created = createdAt == null ? "" : createdAt.toLocalDateTime().toString();
+                        try {
+                            if (csvOut != null) {
+                                csvOut.write(id + "," + csvField(rs.getString(2)) + "," + csvField(rs.getString(3)) + ","
+                                    + rs.getBoolean(4) + "," + created + "\n");
+                            } else {
+                                jsonOut.writeStartObject();
+                                jsonOut.writeNumberField("id", id);
+                                jsonOut.writeStringField("email", rs.getString(2));
+                                jsonOut.writeStringField("username", rs.getString(3));
+                                jsonOut.writeBooleanField("verified", rs.getBoolean(4));
+                                jsonOut.writeStringField("createdAt", created);
+                                jsonOut.writeEndObject();
+                                jsonOut.writeRaw('\n');
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        lastId[0] = id;
+                        count[0]++;
+                    });
+                    return null;
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            total += count[0];
+            if (count[0] < EXPORT_PAGE_SIZE) {
+                break;
+            }
+            if (total % (EXPORT_PAGE_SIZE * 10) == 0) {
+                System.err.printf("已导出 %d 行，%.0f 行/秒%n", total, total / seconds(start));
+            }
+        }
+        if (csv != null) {
+            csv.flush();
+        } else {
+            json.flush();
+        }
+        System.err.printf("导出完成: %d 行，耗时 %.1f 秒%n", total, seconds(start));
+        return total;
+    }
+
+    private static void printProgress(ImportResult result, long start) {
+        double elapsed = seconds(start);
+        System.err.printf("已处理 %d 行：导入 %d，跳过 %d，无效 %d，%.0f 行/秒%n",
+            result.lines, result.imported, result.skipped, result.invalid, result.lines / elapsed);
+    }
+
+    private static double seconds(long start) {
+        return Math.max(1e-3, (System.nanoTime() - start) / 1e9);
+    }
+
+    // 表头中 email、password、username 的列序号
+    private static int[] csvColumns(String header) throws IOException {
+        if (header == null) {
+            throw new IOException("CSV 文件为空");
+        }
+        List<String> names = parseCsvLine(header.startsWith("﻿") ? header.substring(1) : header);
+        int[] columns = {-1, -1, -1};
+        for (int i = 0; i < names.size(); i++) {
+            switch (names.get(i).trim().toLowerCase(Locale.ROOT)) {
+                case "email":
+                    columns[0] = i;
+                    break;
+                case "password":
+                    columns[1] = i;
+                    break;
+                case "username":
+                    columns[2] = i;
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (columns[0] < 0 || columns[1] < 0 || columns[2] < 0) {
+            throw new IOException("CSV 表头须包含 email、password、username 列");
+        }
+        return columns;
+    }
+
+    private static RegisterRequest parseCsv(String line, int[] columns) throws IOException {
+        List<String> fields = parseCsvLine(line);
+        return new RegisterRequest(field(fields, columns[0]), field(fields, columns[1]), field(fields, columns[2]));
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index < fields.size() ? fields.get(index).trim() : null;
+    }
+
+    // RFC 4180 单行解析：支持双引号包围与 "" 转义，不支持字段内换行
+    private static List<String> parseCsvLine(String line) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IOException("引号未闭合");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
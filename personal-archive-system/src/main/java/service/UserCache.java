@@ -0,0 +1,54 @@
+package service;
+
+import model.User;
+import repository.UserRepository;
+import util.DatabaseUtil;
+import util.LruCache;
+import util.Metrics;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// 用户读穿缓存：按 id 缓存公开资料（每个请求都要读）。
+// 登录所需的密码哈希不缓存：失效只清本实例，多实例部署时其他实例会在一个 TTL 内继续接受重置前的旧密码。
+// 缓存只从主库加载：失效后若从延迟的副本读到旧数据，未验证状态等会在缓存中再留一个 TTL
+public class UserCache {
+
+    private static final int CAPACITY = Integer.getInteger("cache.users.size", 10000);
+    private static final long TTL_SECONDS = Long.getLong("cache.users.ttlSeconds", 300L);
+    private static final long NEGATIVE_TTL_SECONDS = Long.getLong("cache.users.negativeTtlSeconds", 30L);
+
+    private static final LruCache<Integer, User> byId =
+        new LruCache<>(CAPACITY, TTL_SECONDS, NEGATIVE_TTL_SECONDS, TimeUnit.SECONDS);
+
+    // 返回副本，调用方修改不会影响缓存
+    public static User getProfileById(int id) throws SQLException {
+        return copy(byId.get(id, key -> DatabaseUtil.withConnection(conn -> UserRepository.findProfileById(conn, key))));
+    }
+
+    // 用户数据变更后调用（注册、验证邮箱、重置密码、批量导入）
+    public static void invalidate(int id) {
+        byId.invalidate(id);
+    }
+
+    static {
+        register("users_by_id", byId);
+    }
+
+    // 命中统计随其他指标由 /metrics 输出
+    private static void register(String name, LruCache<?, ?> cache) {
+        Metrics.gauge("cache_entries", "缓存中的条目数", cache::size, "cache", name);
+        Metrics.counter("cache_hits_total", "缓存命中次数", cache::hitCount, "cache", name);
+        Metrics.counter("cache_misses_total", "缓存未命中次数", cache::missCount, "cache", name);
+        Metrics.counter("cache_evictions_total", "缓存淘汰或清除的条目数", cache::evictionCount, "cache", name);
+    }
+
+    private static User copy(User user) {
+        if (user == null) {
+            return null;
+        }
+        User copy = new User(user.getId(), user.getEmail(), user.getUsername(), user.isVerified());
+        copy.setPasswordHash(user.getPasswordHash());
+        return copy;
+    }
+}
@@ -1,135 +1,143 @@
 package service;
 
 import model.User;
+import repository.Jdbc;
+import repository.UserRepository;
+import session.SessionManager;
 import util.DatabaseUtil;
 import util.PasswordUtil;
 
 import java.sql.*;
-import java.time.LocalDateTime;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.List;
 
 public class UserService {
-    
-    // 用户注册
-    public static boolean registerUser(String email, String password, String username) {
-        // 检查邮箱是否已存在
-        if (isEmailExists(email)) {
-            return false;
-        }
-        
-        String sql = "INSERT INTO users (email, password_hash, username, verification_code, verification_expires) VALUES (?, ?, ?, ?, ?)";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            String verificationCode = UUID.randomUUID().toString();
-            LocalDateTime expires = LocalDateTime.now().plusHours(24); // 24小时有效
-            
-            pstmt.setString(1, email);
-            pstmt.setString(2, PasswordUtil.hashPassword(password));
-            pstmt.setString(3, username);
-            pstmt.setString(4, verificationCode);
-            pstmt.setTimestamp(5, Timestamp.valueOf(expires));
-            
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows > 0) {
-                // 发送验证邮件
-                EmailService.sendVerificationEmail(email, verificationCode);
-                return true;
+
+    public enum RegisterResult { REGISTERED, EMAIL_TAKEN, FAILED }
+
+    // 用户注册：邮箱是否重复以唯一索引为准，过滤器判定“可能已注册”时才先查库，省去明显重复时的 BCrypt 和写入
+    public static RegisterResult registerUser(String email, String password, String username) {
+        try {
+            if (EmailFilter.mightExist(email) && isEmailExists(email)) {
+                return RegisterResult.EMAIL_TAKEN;
             }
+
+            // 哈希在取连接之前完成，避免 BCrypt 期间占用连接
+            String passwordHash = PasswordUtil.hashPassword(password);
+
+            // 用户、验证令牌和验证邮件在同一事务中写入，只取一次连接
+            EmailOutbox.awaitCapacity();
+            int userId = DatabaseUtil.inTransaction(conn -> {
+                int id = UserRepository.insert(conn, email, passwordHash, username);
+                String verificationCode = TokenService.issue(conn, id, TokenService.VERIFY, Duration.ofHours(24)); // 24小时有效
+                EmailService.queueVerificationEmails(conn, List.of(email), List.of(verificationCode));
+                return id;
+            });
+            EmailService.verificationEmailsCommitted(1);
+
+            EmailFilter.add(email);
+            // 清除该 id 可能存在的负缓存
+            UserCache.invalidate(userId);
+            return RegisterResult.REGISTERED;
         } catch (SQLException e) {
+            if (Jdbc.isDuplicateKey(e)) {
+                EmailFilter.add(email);
+                return RegisterResult.EMAIL_TAKEN;
+            }
             System.err.println("注册用户失败: " + e.getMessage());
             e.printStackTrace();
         }
-        return false;
+        return RegisterResult.FAILED;
     }
-    
-    // 检查邮箱是否存在
-    private static boolean isEmailExists(String email) {
-        String sql = "SELECT id FROM users WHERE email = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, email);
-            ResultSet rs = pstmt.executeQuery();
-            return rs.next();
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return false;
+
+    // 检查邮箱是否存在；副本延迟导致漏判时由唯一索引兜底
+    private static boolean isEmailExists(String email) throws SQLException {
+        return DatabaseUtil.withReadConnection(conn -> UserRepository.existsByEmail(conn, email));
     }
-    
-    // 用户登录
+
+    // 用户登录，邮箱或密码错误返回 null；密码正确但邮箱未验证时抛出 EmailNotVerifiedException
     public static User loginUser(String email, String password) {
-        String sql = "SELECT * FROM users WHERE email = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, email);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                String storedHash = rs.getString("password_hash");
-                boolean isVerified = rs.getBoolean("is_verified");
-                
-                // 检查密码
-                if (PasswordUtil.checkPassword(password, storedHash)) {
-                    if (!isVerified) {
-                        throw new RuntimeException("邮箱未验证，请先验证邮箱");
-                    }
-                    
-                    User user = new User();
-                    user.setId(rs.getInt("id"));
-                    user.setEmail(rs.getString("email"));
-                    user.setUsername(rs.getString("username"));
-                    user.setVerified(isVerified);
-                    return user;
-                }
-            }
+        User user;
+        try {
+            // 密码哈希每次从主库读取：重置密码后所有实例立即拒绝旧密码，不受缓存影响
+            user = DatabaseUtil.withConnection(conn -> UserRepository.findAuthByEmail(conn, email));
         } catch (SQLException e) {
             System.err.println("登录失败: " + e.getMessage());
             e.printStackTrace();
+            return null;
         }
-        return null;
+        if (user == null) {
+            return null;
+        }
+
+        // 检查密码（连接已归还，BCrypt 期间不占用连接）
+        String storedHash = user.getPasswordHash();
+        if (!PasswordUtil.checkPassword(password, storedHash)) {
+            return null;
+        }
+        if (!user.isVerified()) {
+            throw new EmailNotVerifiedException();
+        }
+
+        // 旧 cost 的哈希在登录成功后后台升级
+        if (PasswordUtil.needsRehash(storedHash)) {
+            upgradePasswordHash(user.getId(), storedHash, password);
+        }
+        // 会话中不保留密码哈希
+        user.setPasswordHash(null);
+        return user;
+    }
+
+    // 用当前 cost 重新哈希密码；仅当哈希未被其他操作（如重置密码）修改时才写回
+    private static void upgradePasswordHash(int userId, String oldHash, String password) {
+        PasswordUtil.hashPasswordAsync(password, newHash -> {
+            try {
+                DatabaseUtil.withConnection(conn -> UserRepository.replacePasswordHash(conn, userId, oldHash, newHash));
+            } catch (SQLException e) {
+                System.err.println("升级密码哈希失败: " + e.getMessage());
+            }
+        });
     }
-    
+
     // 邮箱验证
     public static boolean verifyEmail(String email, String code) {
-        String sql = "UPDATE users SET is_verified = TRUE, verification_code = NULL, verification_expires = NULL " +
-                    "WHERE email = ? AND verification_code = ? AND verification_expires > ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, email);
-            pstmt.setString(2, code);
-            pstmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
-            
-            return pstmt.executeUpdate() > 0;
+        try {
+            // 返回验证的用户 id，失败时为 null
+            Integer verified = DatabaseUtil.inTransaction(conn -> {
+                Integer userId = TokenService.consume(conn, code, TokenService.VERIFY);
+                if (userId == null) {
+                    return null;
+                }
+                if (!UserRepository.markVerified(conn, userId, email)) {
+                    // 邮箱与令牌不匹配，令牌保留
+                    conn.rollback();
+                    return null;
+                }
+                return userId;
+            });
+            if (verified == null) {
+                return false;
+            }
+            UserCache.invalidate(verified);
+            return true;
         } catch (SQLException e) {
             System.err.println("邮箱验证失败: " + e.getMessage());
             e.printStackTrace();
         }
         return false;
     }
-    
+
     // 生成密码重置令牌
     public static boolean generateResetToken(String email) {
-        String sql = "UPDATE users SET reset_token = ?, reset_expires = ? WHERE email = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            String resetToken = UUID.randomUUID().toString();
-            LocalDateTime expires = LocalDateTime.now().plusHours(1); // 1小时有效
-            
-            pstmt.setString(1, resetToken);
-            pstmt.setTimestamp(2, Timestamp.valueOf(expires));
-            pstmt.setString(3, email);
-            
-            if (pstmt.executeUpdate() > 0) {
+        try {
+            String resetToken = DatabaseUtil.inTransaction(conn -> {
+                Integer userId = UserRepository.findIdByEmail(conn, email);
+                if (userId == null) {
+                    return null;
+                }
+                return TokenService.reissue(conn, userId, TokenService.RESET, Duration.ofHours(1)); // 1小时有效
+            });
+            if (resetToken != null) {
                 EmailService.sendPasswordResetEmail(email, resetToken);
                 return true;
             }
@@ -139,46 +147,46 @@ public class UserService {
         }
         return false;
     }
-    
+
     // 重置密码
     public static boolean resetPassword(String email, String token, String newPassword) {
-        String sql = "UPDATE users SET password_hash = ?, reset_token = NULL, reset_expires = NULL " +
-                    "WHERE email = ? AND reset_token = ? AND reset_expires > ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, PasswordUtil.hashPassword(newPassword));
-            pstmt.setString(2, email);
-            pstmt.setString(3, token);
-            pstmt.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
-            
-            return pstmt.executeUpdate() > 0;
+        try {
+            // 先确认令牌有效，无效令牌不必花费 BCrypt
+            if (DatabaseUtil.withConnection(conn -> TokenService.peek(conn, token, TokenService.RESET)) == null) {
+                return false;
+            }
+            String passwordHash = PasswordUtil.hashPassword(newPassword);
+
+            // 返回重置的用户 id，失败时为 null
+            Integer reset = DatabaseUtil.inTransaction(conn -> {
+                Integer userId = TokenService.consume(conn, token, TokenService.RESET);
+                if (userId == null) {
+                    return null;
+                }
+                if (!UserRepository.setPasswordHash(conn, userId, email, passwordHash)) {
+                    conn.rollback();
+                    return null;
+                }
+                return userId;
+            });
+            if (reset == null) {
+                return false;
+            }
+            UserCache.invalidate(reset);
+            // 重置密码通常是因为旧密码泄露：注销该用户在所有设备上的会话
+            SessionManager.logoutUser(reset);
+            return true;
         } catch (SQLException e) {
             System.err.println("重置密码失败: " + e.getMessage());
             e.printStackTrace();
         }
         return false;
     }
-    
+
     // 根据ID获取用户
     public static User getUserById(int userId) {
-        String sql = "SELECT id, email, username, is_verified FROM users WHERE id = ?";
-        
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, userId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            if (rs.next()) {
-                User user = new User();
-                user.setId(rs.getInt("id"));
-                user.setEmail(rs.getString("email"));
-                user.setUsername(rs.getString("username"));
-                user.setVerified(rs.getBoolean("is_verified"));
-                return user;
-            }
+        try {
+            return UserCache.getProfileById(userId);
         } catch (SQLException e) {
             System.err.println("获取用户失败: " + e.getMessage());
             e.printStackTrace();
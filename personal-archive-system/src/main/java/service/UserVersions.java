@@ -0,0 +1,32 @@
+package service;
+
+import repository.StatsRepository;
+import util.DatabaseUtil;
+
+import java.sql.SQLException;
+
+// 每个用户数据（成就、统计、照片）的版本号，存于 user_stats.version，由 StatsService 在写入的同一事务中递增，
+// 所有实例看到同一个版本号。用作 GET 接口的 ETag 和变更推送的事件 id
+public class UserVersions {
+
+    // 读副本：须在读取数据之前取得，副本上的版本号不会比随后读到的数据新，
+    // 读取期间发生的写入会让下一次请求拿到新数据
+    public static long current(int userId) throws SQLException {
+        return DatabaseUtil.withReadConnection(conn -> StatsRepository.version(conn, userId));
+    }
+
+    // 读主库，供变更推送判断断开期间是否有写入
+    static long latest(int userId) throws SQLException {
+        return DatabaseUtil.withConnection(conn -> StatsRepository.version(conn, userId));
+    }
+
+    // 不带引号的 ETag 值
+    public static String tag(int userId) throws SQLException {
+        return tag(userId, current(userId));
+    }
+
+    // 已经读到版本号时（如统计数字自带版本号）直接生成 ETag
+    public static String tag(int userId, long version) {
+        return userId + "." + version;
+    }
+}
@@ -0,0 +1,150 @@
+package session;
+
+import util.TokenUtil;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// 单机内存会话：每个会话只占一个 long（高 32 位为过期秒数，低 32 位为用户 id），
+// 定期及退出时写快照、启动时读回，重启（包括崩溃）不会让所有人掉线。
+// 与 JdbcSessionStore 一样只按令牌的 SHA-256 保存，快照文件泄露不会泄露可用的 Cookie
+public class InMemorySessionStore implements SessionStore {
+
+    // 快照文件头；旧版快照直接以明文令牌开头（首字节为长度高位 0），读到时丢弃
+    private static final int SNAPSHOT_MAGIC = 0x53455332;
+
+    private final ConcurrentHashMap<String, Long> sessions = new ConcurrentHashMap<>();
+    private final Path snapshot;
+    // 上次写快照后是否有新建或删除的会话；只有过期的变化不必重写
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    public InMemorySessionStore(Path snapshot) {
+        this.snapshot = snapshot;
+        load();
+    }
+
+    @Override
+    public void save(String token, int userId, long expiresAtMillis) {
+        sessions.put(TokenUtil.sha256Hex(token), pack(userId, expiresAtMillis));
+        dirty.set(true);
+    }
+
+    @Override
+    public Integer resolve(String token, long nowMillis) {
+        String hash = TokenUtil.sha256Hex(token);
+        Long packed = sessions.get(hash);
+        if (packed == null) {
+            return null;
+        }
+        if (expiresAtMillis(packed) <= nowMillis) {
+            sessions.remove(hash, packed);
+            return null;
+        }
+        return userId(packed);
+    }
+
+    @Override
+    public void remove(String token) {
+        if (sessions.remove(TokenUtil.sha256Hex(token)) != null) {
+            dirty.set(true);
+        }
+    }
+
+    @Override
+    public int removeUser(int userId) {
+        int before = sessions.size();
+        if (sessions.values().removeIf(packed -> userId(packed) == userId)) {
+            dirty.set(true);
+        }
+        return Math.max(0, before - sessions.size());
+    }
+
+    @Override
+    public int sweepExpired(long nowMillis) {
+        int before = sessions.size();
+        sessions.values().removeIf(packed -> expiresAtMillis(packed) <= nowMillis);
+        return Math.max(0, before - sessions.size());
+    }
+
+    @Override
+    public int size() {
+        return sessions.size();
+    }
+
+    // 先写临时文件再原子替换，写到一半崩溃时旧快照仍然完整；定期任务与关闭钩子不会同时写
+    @Override
+    public synchronized void persist() {
+        if (snapshot == null || !dirty.getAndSet(false)) {
+            return;
+        }
+        sweepExpired(System.currentTimeMillis());
+        try {
+            Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+            Files.deleteIfExists(tmp);
+            try {
+                Files.createFile(tmp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            } catch (UnsupportedOperationException e) {
+                // 非 POSIX 文件系统，沿用默认权限
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                for (Map.Entry<String, Long> entry : sessions.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(entry.getValue());
+                }
+            }
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true);
+            System.err.println("保存会话快照失败: " + e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (snapshot == null || !Files.exists(snapshot)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                in.close();
+                Files.delete(snapshot);
+                System.err.println("会话快照为旧格式（含明文令牌），已删除，所有会话需要重新登录");
+                return;
+            }
+            while (true) {
+                String hash;
+                try {
+                    hash = in.readUTF();
+                } catch (EOFException e) {
+                    break;
+                }
+                long packed = in.readLong();
+                if (expiresAtMillis(packed) > now) {
+                    sessions.put(hash, packed);
+                }
+            }
+            System.out.println("已恢复会话: " + sessions.size());
+        } catch (IOException e) {
+            System.err.println("读取会话快照失败: " + e.getMessage());
+        }
+    }
+
+    private static long pack(int userId, long expiresAtMillis) {
+        return ((expiresAtMillis / 1000) << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    private static int userId(long packed) {
+        return (int) packed;
+    }
+
+    private static long expiresAtMillis(long packed) {
+        return (packed >>> 32) * 1000;
+    }
+}
@@ -0,0 +1,114 @@
+package session;
+
+import util.DatabaseUtil;
+import util.TokenUtil;
+
+import java.sql.*;
+
+// 共享会话：保存在数据库 sessions 表中，多个实例可以放在负载均衡后面共用；
+// 表中只存令牌的 SHA-256，泄露数据库不会泄露可用的 Cookie
+public class JdbcSessionStore implements SessionStore {
+
+    private static final int SWEEP_BATCH = 1000;
+
+    @Override
+    public void save(String token, int userId, long expiresAtMillis) {
+        String sql = "INSERT INTO sessions (token_hash, user_id, expires_at) VALUES (?, ?, ?)";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, TokenUtil.sha256Hex(token));
+            pstmt.setInt(2, userId);
+            pstmt.setLong(3, expiresAtMillis);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("保存会话失败", e);
+        }
+    }
+
+    @Override
+    public Integer resolve(String token, long nowMillis) {
+        String sql = "SELECT user_id FROM sessions WHERE token_hash = ? AND expires_at > ?";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, TokenUtil.sha256Hex(token));
+            pstmt.setLong(2, nowMillis);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        } catch (SQLException e) {
+            System.err.println("读取会话失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void remove(String token) {
+        String sql = "DELETE FROM sessions WHERE token_hash = ?";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setString(1, TokenUtil.sha256Hex(token));
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("删除会话失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public int removeUser(int userId) {
+        String sql = "DELETE FROM sessions WHERE user_id = ?";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setInt(1, userId);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("删除用户会话失败: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // 分批删除，避免长时间锁表
+    @Override
+    public int sweepExpired(long nowMillis) {
+        String sql = "DELETE FROM sessions WHERE expires_at <= ? LIMIT " + SWEEP_BATCH;
+        int total = 0;
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, nowMillis);
+            int deleted;
+            do {
+                deleted = pstmt.executeUpdate();
+                total += deleted;
+            } while (deleted == SWEEP_BATCH);
+        } catch (SQLException e) {
+            System.err.println("清理过期会话失败: " + e.getMessage());
+        }
+        return total;
+    }
+
+    @Override
+    public int size() {
+        String sql = "SELECT COUNT(*) FROM sessions WHERE expires_at > ?";
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            pstmt.setLong(1, System.currentTimeMillis());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("统计会话失败: " + e.getMessage());
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package session;
+
+import spark.Request;
+import spark.Response;
+import util.Metrics;
+import util.TokenUtil;
+
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 基于 Cookie 的登录会话；通过 -Dsession.store=memory|jdbc 选择存储实现
+public class SessionManager {
+
+    public static final String COOKIE_NAME = "SID";
+    private static final String USER_ID_ATTRIBUTE = "session.userId";
+    private static final long TTL_SECONDS = TimeUnit.HOURS.toSeconds(Long.getLong("session.ttlHours", 12L));
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+    private static final long PERSIST_INTERVAL_SECONDS = Long.getLong("session.snapshotSeconds", 30L);
+
+    private static volatile SessionStore store;
+
+    public static synchronized void start() {
+        if (store != null) {
+            return;
+        }
+        store = createStore();
+        Metrics.gauge("sessions_active", "未过期的会话数", SessionManager::activeSessions);
+
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                store.sweepExpired(System.currentTimeMillis());
+            } catch (RuntimeException e) {
+                System.err.println("清理会话失败: " + e.getMessage());
+            }
+        }, SWEEP_INTERVAL_SECONDS, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                store.persist();
+            } catch (RuntimeException e) {
+                System.err.println("保存会话失败: " + e.getMessage());
+            }
+        }, PERSIST_INTERVAL_SECONDS, PERSIST_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> store.close(), "session-store-shutdown"));
+    }
+
+    // 登录成功后创建会话并写入 Cookie
+    public static void login(Request request, Response response, int userId) {
+        String token = TokenUtil.newToken();
+        store.save(token, userId, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TTL_SECONDS));
+        response.cookie("/", COOKIE_NAME, token, (int) TTL_SECONDS, request.raw().isSecure(), true);
+        request.attribute(USER_ID_ATTRIBUTE, userId);
+    }
+
+    // 当前登录用户 id，未登录返回 null；同一请求内只解析一次
+    public static Integer currentUserId(Request request) {
+        Integer cached = request.attribute(USER_ID_ATTRIBUTE);
+        if (cached != null) {
+            return cached;
+        }
+        String token = request.cookie(COOKIE_NAME);
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        Integer userId = store.resolve(token, System.currentTimeMillis());
+        if (userId != null) {
+            request.attribute(USER_ID_ATTRIBUTE, userId);
+        }
+        return userId;
+    }
+
+    public static void logout(Request request, Response response) {
+        String token = request.cookie(COOKIE_NAME);
+        if (token != null) {
+            store.remove(token);
+        }
+        response.removeCookie("/", COOKIE_NAME);
+    }
+
+    // 注销某个用户在所有设备上的会话；命令行工具中没有启动会话存储时什么都不做
+    public static void logoutUser(int userId) {
+        SessionStore current = store;
+        if (current != null) {
+            current.removeUser(userId);
+        }
+    }
+
+    public static int activeSessions() {
+        return store == null ? 0 : store.size();
+    }
+
+    private static SessionStore createStore() {
+        String type = System.getProperty("session.store", "memory");
+        if ("jdbc".equalsIgnoreCase(type)) {
+            System.out.println("会话存储: 数据库（共享）");
+            return new JdbcSessionStore();
+        }
+        System.out.println("会话存储: 内存");
+        return new InMemorySessionStore(Paths.get(System.getProperty("session.snapshot", "sessions.dat")));
+    }
+}
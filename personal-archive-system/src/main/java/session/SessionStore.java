@@ -0,0 +1,28 @@
+package session;
+
+// 会话存储：只保存令牌到用户 id 和过期时间的映射，用户资料按需从 UserCache 读取
+public interface SessionStore {
+
+    void save(String token, int userId, long expiresAtMillis);
+
+    // 解析令牌，返回用户 id；不存在或已过期返回 null
+    Integer resolve(String token, long nowMillis);
+
+    void remove(String token);
+
+    // 删除某个用户的全部会话（重置密码后），返回删除数量
+    int removeUser(int userId);
+
+    // 一次性清理所有过期会话，返回清理数量
+    int sweepExpired(long nowMillis);
+
+    int size();
+
+    // 定期调用（内存实现用来保存快照，崩溃或 kill -9 时最多丢失一个周期内的变化）
+    default void persist() {}
+
+    // 进程退出前调用
+    default void close() {
+        persist();
+    }
+}
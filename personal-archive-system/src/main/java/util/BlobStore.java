@@ -0,0 +1,74 @@
+package util;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// 内容寻址的文件存储：文件按 SHA-256 存放在 <storage.dir>/ab/cd/<hash>，相同内容只保存一份
+public class BlobStore {
+
+    private static final Path ROOT = Paths.get(System.getProperty("storage.dir", "data/blobs")).toAbsolutePath();
+    private static final Path TEMP = ROOT.resolve("tmp");
+    private static final Path THUMBNAILS = ROOT.resolve("thumbs");
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    public static boolean isValidHash(String hash) {
+        return hash != null && HASH.matcher(hash).matches();
+    }
+
+    public static Path pathFor(String hash) {
+        return ROOT.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    public static Path thumbnailPathFor(String hash) {
+        return THUMBNAILS.resolve(hash.substring(0, 2)).resolve(hash + ".jpg");
+    }
+
+    // 临时文件与正式文件在同一文件系统，提交时可以原子改名
+    public static Path createTempFile() throws IOException {
+        Files.createDirectories(TEMP);
+        return Files.createTempFile(TEMP, "upload-", ".part");
+    }
+
+    // 把写完的临时文件移到内容地址；已有相同内容时丢弃临时文件并返回 false
+    public static boolean commit(Path temp, String hash) throws IOException {
+        Path target = pathFor(hash);
+        if (Files.exists(target)) {
+            Files.deleteIfExists(temp);
+            return false;
+        }
+        return moveInto(temp, target);
+    }
+
+    public static boolean moveInto(Path temp, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            // 并发上传了同样的内容
+            Files.deleteIfExists(temp);
+            return false;
+        }
+    }
+
+    // 启动时清理上次异常退出残留的临时文件
+    public static void cleanTemp() {
+        if (!Files.isDirectory(TEMP)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(TEMP)) {
+            files.forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    System.err.println("清理临时文件失败: " + file);
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("清理临时目录失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package util;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// 搜索分词：中日韩文字切成相邻二元组（并保留每段最后一个字），字母数字按整词切分并转小写
+public class CjkTokenizer {
+
+    public static final int MAX_TERM_LENGTH = 32;
+
+    // 文档分词：把词项出现次数乘以字段权重累加到 terms
+    public static void addTerms(String text, int weight, Map<String, Integer> terms) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        tokenize(text, term -> terms.merge(term, weight, Integer::sum));
+    }
+
+    // 查询分词：去重并保持顺序
+    public static Set<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (query != null) {
+            tokenize(query, terms::add);
+        }
+        return terms;
+    }
+
+    public static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private interface TermSink {
+        void accept(String term);
+    }
+
+    private static void tokenize(String text, TermSink sink) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        int i = 0;
+        int length = lower.length();
+        while (i < length) {
+            int cp = lower.codePointAt(i);
+            if (isCjk(cp)) {
+                // 中日韩连续段：相邻二元组 + 最后一个字（保证单字查询可以按前缀命中）
+                int prev = cp;
+                i += Character.charCount(cp);
+                while (i < length) {
+                    int next = lower.codePointAt(i);
+                    if (!isCjk(next)) {
+                        break;
+                    }
+                    sink.accept(new StringBuilder().appendCodePoint(prev).appendCodePoint(next).toString());
+                    prev = next;
+                    i += Character.charCount(next);
+                }
+                sink.accept(new String(Character.toChars(prev)));
+            } else if (Character.isLetterOrDigit(cp)) {
+                int start = i;
+                while (i < length) {
+                    int next = lower.codePointAt(i);
+                    if (!Character.isLetterOrDigit(next) || isCjk(next)) {
+                        break;
+                    }
+                    i += Character.charCount(next);
+                }
+                String word = lower.substring(start, i);
+                sink.accept(word.length() > MAX_TERM_LENGTH ? word.substring(0, MAX_TERM_LENGTH) : word);
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+    }
+}
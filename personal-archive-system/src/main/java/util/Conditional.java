@@ -0,0 +1,38 @@
+package util;
+
+import spark.Request;
+import spark.Response;
+
+// 条件请求：设置 ETag，If-None-Match 匹配时返回 304，调用方不必再查询和序列化数据
+public class Conditional {
+
+    // tag 为不带引号的值，作为弱 ETag 发送；返回 true 时已设置 304，路由直接返回 ""
+    public static boolean notModified(Request request, Response response, String tag) {
+        String etag = "W/\"" + tag + "\"";
+        response.header("ETag", etag);
+        response.header("Cache-Control", FileSender.CACHE_REVALIDATE);
+        if (matches(request.headers("If-None-Match"), etag)) {
+            response.status(304);
+            return true;
+        }
+        return false;
+    }
+
+    // If-None-Match 可能是逗号分隔的列表或 *，弱校验比较（忽略 W/ 前缀）
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
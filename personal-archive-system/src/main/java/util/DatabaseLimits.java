@@ -0,0 +1,18 @@
+package util;
+
+// 连接池大小与 JDBC 并发上限，只取自系统属性。单独成类：VirtualThreadJetty 在启动早期（主线程上、
+// 注册路由之前）需要这些数字，读取它们不应触发 DatabaseUtil 的静态初始化（建立连接池）
+final class DatabaseLimits {
+
+    static final int POOL_SIZE = Integer.getInteger("db.poolSize", 10);
+
+    // 同时持有连接的线程数上限（公平信号量，先到先得）。虚拟线程模式下成千上万个请求可能同时等连接，
+    // Hikari 的等待不保证顺序，排在后面的请求会被反复插队；默认在虚拟线程模式下启用，大小等于连接池
+    static final int MAX_CONCURRENT =
+        Integer.getInteger("db.maxConcurrent", Boolean.getBoolean("server.virtualThreads") ? POOL_SIZE : 0);
+
+    // 同时可执行 JDBC 的线程数，虚拟线程模式下用来确定载体线程数
+    static int maxConcurrent() {
+        return MAX_CONCURRENT > 0 ? MAX_CONCURRENT : POOL_SIZE;
+    }
+}
@@ -2,24 +2,191 @@ package util;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 public class DatabaseUtil {
     private static HikariDataSource dataSource;
-    
+
+    // 连接参数可用系统属性覆盖（基准测试、压测使用内嵌数据库）
+    private static final String URL = System.getProperty("db.url", "jdbc:mysql://localhost:3306/personal_archive");
+
+    private static final int POOL_SIZE = DatabaseLimits.POOL_SIZE;
+
+    // 主库与副本的连接共用同一组许可，见 DatabaseLimits
+    private static final Semaphore permits =
+        DatabaseLimits.MAX_CONCURRENT > 0 ? new Semaphore(DatabaseLimits.MAX_CONCURRENT, true) : null;
+
+    // 只读副本（-Ddb.replicas=空白分隔的 JDBC 地址），未配置时读操作也走主库
+    private static final ReplicaSet replicas;
+
+    // 当前请求是否必须读主库（刚写过数据的客户端要读到自己的写入）
+    private static final ThreadLocal<Boolean> primaryOnly = new ThreadLocal<>();
+
+    private static final Metrics.Counter replicaReads =
+        Metrics.counter("db_reads_total", "只读操作的连接来源", "target", "replica");
+    private static final Metrics.Counter primaryReads =
+        Metrics.counter("db_reads_total", "只读操作的连接来源", "target", "primary");
+
+    private static final Metrics.Histogram acquireTime =
+        Metrics.histogram("db_connection_acquire_seconds", "从连接池获取连接的耗时");
+    private static final Metrics.Counter acquireTimeouts =
+        Metrics.counter("db_connection_acquire_timeouts_total", "等待连接超时的次数");
+
     static {
         HikariConfig config = new HikariConfig();
-        config.setJdbcUrl("jdbc:mysql://localhost:3306/personal_archive");
-        config.setUsername("root");
-        config.setPassword("123456");
-        config.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        config.setMaximumPoolSize(10);
-        config.setMinimumIdle(2);
+        config.setJdbcUrl(URL);
+        config.setUsername(System.getProperty("db.user", "root"));
+        config.setPassword(System.getProperty("db.password", "123456"));
+        config.setMaximumPoolSize(POOL_SIZE);
+        config.setMinimumIdle(Math.min(2, config.getMaximumPoolSize()));
+        configureDriver(config, URL);
         dataSource = new HikariDataSource(config);
+
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        Metrics.gauge("db_pool_connections", "连接池中的连接数", pool::getActiveConnections, "state", "active");
+        Metrics.gauge("db_pool_connections", "连接池中的连接数", pool::getIdleConnections, "state", "idle");
+        Metrics.gauge("db_pool_waiting_threads", "等待连接的线程数", pool::getThreadsAwaitingConnection);
+        Metrics.gauge("db_pool_max_connections", "连接池上限", config::getMaximumPoolSize);
+
+        String replicaUrls = System.getProperty("db.replicas", "");
+        replicas = replicaUrls.isBlank() ? null : new ReplicaSet(replicaUrls,
+            System.getProperty("db.replica.user", config.getUsername()),
+            System.getProperty("db.replica.password", config.getPassword()),
+            Integer.getInteger("db.replica.poolSize", POOL_SIZE));
+    }
+
+    static void configureDriver(HikariConfig config, String url) {
+        if (url.startsWith("jdbc:mysql:")) {
+            config.setDriverClassName("com.mysql.cj.jdbc.Driver");
+            // 使用服务端预编译语句并在连接上缓存，命名查询只需解析一次
+            config.addDataSourceProperty("useServerPrepStmts", "true");
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", "250");
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            // 批量写入（导入用户）合并为多行 INSERT，一批一次往返
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        }
     }
-    
+
     public static Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        long start = System.nanoTime();
+        if (permits != null) {
+            acquirePermit();
+        }
+        try {
+            return withPermit(primaryConnection(start));
+        } catch (SQLException | RuntimeException e) {
+            if (permits != null) {
+                permits.release();
+            }
+            throw e;
+        }
+    }
+
+    private static Connection primaryConnection(long start) throws SQLException {
+        try {
+            Connection conn = dataSource.getConnection();
+            acquireTime.recordSince(start);
+            return conn;
+        } catch (SQLTransientConnectionException e) {
+            acquireTimeouts.inc();
+            throw e;
+        }
+    }
+
+    // 已取得许可时包装连接，关闭时释放
+    private static Connection withPermit(Connection conn) {
+        return permits == null ? conn : new PermitConnection(conn, permits);
+    }
+
+    public static boolean hasReplicas() {
+        return replicas != null && !replicas.isEmpty();
+    }
+
+    // 在请求开始时设置，请求结束时传 false 清除
+    public static void readFromPrimary(boolean primary) {
+        if (primary) {
+            primaryOnly.set(Boolean.TRUE);
+        } else {
+            primaryOnly.remove();
+        }
+    }
+
+    // 只读操作的连接：轮询健康的副本，没有可用副本或当前请求要求读主库时使用主库。
+    // 副本数据可能略有延迟，写入前的检查、令牌校验等必须读最新数据的操作仍用 getConnection
+    // 副本连接同样要先取得许可：阻塞在副本查询上的虚拟线程也会占住载体线程
+    public static Connection getReadConnection() throws SQLException {
+        long start = System.nanoTime();
+        if (permits != null) {
+            acquirePermit();
+        }
+        try {
+            if (replicas != null && primaryOnly.get() == null) {
+                Connection conn = replicas.getConnection();
+                if (conn != null) {
+                    replicaReads.inc();
+                    return withPermit(conn);
+                }
+            }
+            primaryReads.inc();
+            return withPermit(primaryConnection(start));
+        } catch (SQLException | RuntimeException e) {
+            if (permits != null) {
+                permits.release();
+            }
+            throw e;
+        }
+    }
+
+    private static void acquirePermit() throws SQLException {
+        try {
+            if (!permits.tryAcquire(dataSource.getConnectionTimeout(), TimeUnit.MILLISECONDS)) {
+                acquireTimeouts.inc();
+                throw new SQLTransientConnectionException("等待数据库连接超时");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("等待数据库连接被中断", e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T execute(Connection conn) throws SQLException;
+    }
+
+    // 在同一个连接上执行多个操作
+    public static <T> T withConnection(SqlWork<T> work) throws SQLException {
+        try (Connection conn = getConnection()) {
+            return work.execute(conn);
+        }
+    }
+
+    public static <T> T withReadConnection(SqlWork<T> work) throws SQLException {
+        try (Connection conn = getReadConnection()) {
+            return work.execute(conn);
+        }
+    }
+
+    // 在同一个事务中执行多个操作，异常时回滚
+    public static <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.execute(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,157 @@
+package util;
+
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.util.Callback;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Semaphore;
+
+// 文件下载：支持 ETag/If-None-Match 与单段 Range；文件内容经内存映射直接交给 Jetty 写出，不复制到堆上。
+// 写出是异步的：请求进入异步模式后线程立即返回，慢客户端只占一个映射缓冲区，不占 Jetty 线程
+public class FileSender {
+
+    // 内容按哈希寻址，地址不变内容就不变
+    public static final String CACHE_IMMUTABLE = "private, max-age=31536000, immutable";
+    public static final String CACHE_REVALIDATE = "private, no-cache";
+
+    // 同时进行的下载数上限，限制映射的文件数与待写出的数据量；许可在写完（或客户端断开）时释放
+    private static final Semaphore slots = new Semaphore(Integer.getInteger("download.maxConcurrent", 64));
+
+    // etag 为不带引号的值；返回 "" 供路由直接返回
+    public static String send(Request request, Response response, Path file, String contentType,
+                              String etag, String cacheControl) throws IOException {
+        String quoted = "\"" + etag + "\"";
+        response.header("ETag", quoted);
+        response.header("Cache-Control", cacheControl);
+        response.header("Accept-Ranges", "bytes");
+        if (Conditional.matches(request.headers("If-None-Match"), quoted)) {
+            response.status(304);
+            return "";
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            long length = size;
+
+            // If-Range 与当前版本不一致时忽略 Range，返回完整内容
+            String range = request.headers("Range");
+            String ifRange = request.headers("If-Range");
+            if (range != null && (ifRange == null || ifRange.equals(quoted))) {
+                long[] parsed = parseRange(range, size);
+                if (parsed == null) {
+                    response.status(416);
+                    response.header("Content-Range", "bytes */" + size);
+                    return "";
+                }
+                if (parsed.length == 2) {
+                    start = parsed[0];
+                    length = parsed[1] - parsed[0] + 1;
+                    response.status(206);
+                    response.header("Content-Range", "bytes " + parsed[0] + "-" + parsed[1] + "/" + size);
+                }
+            }
+
+            response.type(contentType);
+            response.raw().setContentLengthLong(length);
+            if ("HEAD".equals(request.requestMethod()) || length == 0) {
+                return "";
+            }
+            if (!slots.tryAcquire()) {
+                throw new ServerBusyException("下载并发数已满");
+            }
+            boolean pending = false;
+            try {
+                pending = write(request.raw(), channel, start, length, response.raw().getOutputStream());
+            } finally {
+                if (!pending) {
+                    slots.release();
+                }
+            }
+        }
+        return "";
+    }
+
+    // 返回 true 表示已交给 Jetty 异步写出，由回调释放许可并结束请求。
+    // 调用 sendContent 时响应头即已提交，Spark 看到响应已提交便不再写入响应体。
+    // 映射在文件通道关闭后仍然有效，直到缓冲区被回收
+    private static boolean write(HttpServletRequest request, FileChannel channel, long start, long length,
+                                 ServletOutputStream out) throws IOException {
+        if (out instanceof HttpOutput && length <= Integer.MAX_VALUE && request.isAsyncSupported()) {
+            ByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            AsyncContext async = request.startAsync();
+            // 不限制整个下载的时长；客户端停止读取时由连接的空闲超时结束
+            async.setTimeout(0);
+            ((HttpOutput) out).sendContent(content, new Callback() {
+                @Override
+                public void succeeded() {
+                    slots.release();
+                    async.complete();
+                }
+
+                @Override
+                public void failed(Throwable x) {
+                    // 多为客户端中途断开
+                    slots.release();
+                    async.complete();
+                }
+            });
+            return true;
+        }
+        // 超过 2GB 无法一次映射（照片远小于此），同步写出
+        WritableByteChannel target = Channels.newChannel(out);
+        long position = start;
+        long end = start + length;
+        while (position < end) {
+            position += channel.transferTo(position, end - position, target);
+        }
+        return false;
+    }
+
+    // 返回 {first, last}；无法满足时返回 null；格式不支持（如多段）时返回空数组，按完整内容处理
+    static long[] parseRange(String header, long size) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String spec = header.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return new long[0];
+        }
+        try {
+            String from = spec.substring(0, dash).trim();
+            String to = spec.substring(dash + 1).trim();
+            long first;
+            long last;
+            if (from.isEmpty()) {
+                // bytes=-N：最后 N 个字节
+                long suffix = Long.parseLong(to);
+                if (suffix <= 0) {
+                    return null;
+                }
+                first = Math.max(0, size - suffix);
+                last = size - 1;
+            } else {
+                first = Long.parseLong(from);
+                last = to.isEmpty() ? size - 1 : Math.min(Long.parseLong(to), size - 1);
+            }
+            if (first < 0 || first >= size || last < first) {
+                return null;
+            }
+            return new long[] {first, last};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
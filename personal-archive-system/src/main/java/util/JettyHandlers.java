@@ -0,0 +1,54 @@
+package util;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
+import spark.embeddedserver.jetty.JettyServerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+// 在 Spark 的 Jetty 处理器外面套上自己的处理器（虚拟线程分派、响应压缩等）。
+// Spark 创建服务器后才设置处理器，这里替换服务器工厂并拦截 setHandler；须在注册任何路由之前调用 wrap()
+public class JettyHandlers {
+
+    // 按注册顺序由内向外包装，后注册的在最外层
+    private static final List<UnaryOperator<Handler>> wrappers = new ArrayList<>();
+
+    public static synchronized void wrap(UnaryOperator<Handler> wrapper) {
+        if (wrappers.isEmpty()) {
+            installFactory();
+        }
+        wrappers.add(wrapper);
+    }
+
+    private static void installFactory() {
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, new EmbeddedJettyFactory(new JettyServerFactory() {
+            @Override
+            public Server create(int maxThreads, int minThreads, int threadTimeoutMillis) {
+                QueuedThreadPool pool = new QueuedThreadPool(maxThreads > 0 ? maxThreads : 200,
+                        minThreads > 0 ? minThreads : 8, threadTimeoutMillis > 0 ? threadTimeoutMillis : 60000);
+                return create(pool);
+            }
+
+            @Override
+            public Server create(ThreadPool threadPool) {
+                return new Server(threadPool) {
+                    @Override
+                    public void setHandler(Handler handler) {
+                        synchronized (JettyHandlers.class) {
+                            for (UnaryOperator<Handler> wrapper : wrappers) {
+                                handler = wrapper.apply(handler);
+                            }
+                        }
+                        super.setHandler(handler);
+                    }
+                };
+            }
+        }));
+    }
+}
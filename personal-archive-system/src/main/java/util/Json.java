@@ -0,0 +1,93 @@
+package util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import spark.Request;
+import spark.Response;
+
+import javax.servlet.ServletOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+// 全局共用的 Jackson 配置；ObjectReader/ObjectWriter 线程安全，按类型预先创建后重复使用
+public class Json {
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    static {
+        // 写完不关闭输出流，由容器负责
+        mapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    public static ObjectReader reader(Class<?> type) {
+        return mapper.readerFor(type);
+    }
+
+    public static ObjectWriter writer(Class<?> type) {
+        return mapper.writerFor(type);
+    }
+
+    // 启动时预先编码固定不变的响应体
+    public static byte[] encode(Object value) {
+        try {
+            return mapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 请求体为空或格式错误时抛出 IOException
+    public static <T> T read(Request request, ObjectReader reader) throws IOException {
+        byte[] body = request.bodyAsBytes();
+        if (body == null || body.length == 0) {
+            throw new IOException("请求体为空");
+        }
+        return reader.readValue(body);
+    }
+
+    // 只扫描顶层对象取出一个字符串字段（如限流时取 email），不绑定整个请求体；取不到时返回 null
+    public static String peekField(byte[] body, String field) {
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try (JsonParser parser = mapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                token = parser.nextToken();
+                if (field.equals(name)) {
+                    return token == JsonToken.VALUE_STRING ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // 直接写入响应输出流并提交；返回 "" 供路由直接返回
+    public static String send(Response response, int status, byte[] body) throws IOException {
+        response.status(status);
+        response.type("application/json");
+        response.raw().setContentLength(body.length);
+        ServletOutputStream out = response.raw().getOutputStream();
+        out.write(body);
+        out.flush();
+        return "";
+    }
+
+    // 先序列化为字节数组，带上 Content-Length，压缩时据此跳过小响应
+    public static String send(Response response, int status, ObjectWriter writer, Object value) throws IOException {
+        return send(response, status, writer.writeValueAsBytes(value));
+    }
+}
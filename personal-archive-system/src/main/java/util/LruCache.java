@@ -0,0 +1,110 @@
+package util;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// 容量有界的 LRU 读穿缓存，支持过期时间和负缓存（记录“查无此项”）
+public class LruCache<K, V> {
+
+    @FunctionalInterface
+    public interface Loader<K, V> {
+        V load(K key) throws SQLException;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int capacity;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final LinkedHashMap<K, Entry<V>> map;
+    // 每次失效递增；加载期间发生过失效则丢弃加载结果，避免写回旧数据
+    private long generation;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public LruCache(int capacity, long ttl, long negativeTtl, TimeUnit unit) {
+        this.capacity = capacity;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.negativeTtlNanos = unit.toNanos(negativeTtl);
+        this.map = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > LruCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // 命中直接返回；未命中时调用 loader 加载并写入缓存（null 结果按负缓存保存）
+    public V get(K key, Loader<K, V> loader) throws SQLException {
+        long now = System.nanoTime();
+        long loadGeneration;
+        synchronized (this) {
+            loadGeneration = generation;
+            Entry<V> entry = map.get(key);
+            if (entry != null) {
+                if (entry.expiresAt - now > 0) {
+                    hits.increment();
+                    return entry.value;
+                }
+                map.remove(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+
+        V value = loader.load(key);
+        long expiresAt = System.nanoTime() + (value == null ? negativeTtlNanos : ttlNanos);
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                map.put(key, new Entry<>(value, expiresAt));
+            }
+        }
+        return value;
+    }
+
+    public synchronized void invalidate(K key) {
+        generation++;
+        if (map.remove(key) != null) {
+            evictions.increment();
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        evictions.add(map.size());
+        map.clear();
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+}
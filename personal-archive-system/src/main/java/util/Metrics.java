@@ -0,0 +1,180 @@
+package util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// 进程内指标注册表，由 /metrics 以 Prometheus 文本格式输出。
+// 指标在类初始化或启动时注册并持有引用，记录时只做 LongAdder 累加，请求路径上不分配对象
+public class Metrics {
+
+    // 耗时直方图的桶上限（秒），与 Prometheus 客户端的默认值一致
+    private static final double[] BUCKETS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    private static final long[] BUCKET_NANOS = new long[BUCKETS.length];
+
+    static {
+        for (int i = 0; i < BUCKETS.length; i++) {
+            BUCKET_NANOS[i] = (long) (BUCKETS[i] * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    private static final Map<String, Family> families = new LinkedHashMap<>();
+
+    private interface Series {
+        void write(StringBuilder out, String name, String labels);
+    }
+
+    private static final class Family {
+        final String help;
+        final String type;
+        // 标签串（已格式化）-> 指标
+        final Map<String, Series> series = new LinkedHashMap<>();
+
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    public static final class Counter implements Series {
+        private final LongAdder value = new LongAdder();
+
+        public void inc() {
+            value.increment();
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        @Override
+        public void write(StringBuilder out, String name, String labels) {
+            sample(out, name, labels, null, value.sum());
+        }
+    }
+
+    // 耗时直方图，记录单位为纳秒，输出单位为秒
+    public static final class Histogram implements Series {
+        // 最后一个桶对应 +Inf
+        private final LongAdder[] buckets = new LongAdder[BUCKETS.length + 1];
+        private final LongAdder sumNanos = new LongAdder();
+
+        private Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void record(long nanos) {
+            int i = 0;
+            while (i < BUCKET_NANOS.length && nanos > BUCKET_NANOS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sumNanos.add(nanos);
+        }
+
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        @Override
+        public void write(StringBuilder out, String name, String labels) {
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i].sum();
+                String le = i < BUCKETS.length ? Double.toString(BUCKETS[i]) : "+Inf";
+                sample(out, name + "_bucket", labels, "le=\"" + le + "\"", cumulative);
+            }
+            out.append(name).append("_sum").append(braces(labels, null)).append(' ')
+                .append(sumNanos.sum() / 1e9).append('\n');
+            sample(out, name + "_count", labels, null, cumulative);
+        }
+    }
+
+    private static final class Gauge implements Series {
+        private final LongSupplier supplier;
+
+        Gauge(LongSupplier supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public void write(StringBuilder out, String name, String labels) {
+            sample(out, name, labels, null, supplier.getAsLong());
+        }
+    }
+
+    // labels 为成对的标签名和值；同名同标签重复注册时返回已有的指标
+    public static Counter counter(String name, String help, String... labels) {
+        return (Counter) register(name, help, "counter", labels, new Counter());
+    }
+
+    public static Histogram histogram(String name, String help, String... labels) {
+        return (Histogram) register(name, help, "histogram", labels, new Histogram());
+    }
+
+    // 由别处累计的计数（如缓存命中数），输出时才读取
+    public static void counter(String name, String help, LongSupplier supplier, String... labels) {
+        register(name, help, "counter", labels, new Gauge(supplier));
+    }
+
+    // 仪表值在输出时才读取
+    public static void gauge(String name, String help, LongSupplier supplier, String... labels) {
+        register(name, help, "gauge", labels, new Gauge(supplier));
+    }
+
+    private static synchronized Series register(String name, String help, String type, String[] labels, Series series) {
+        Family family = families.computeIfAbsent(name, key -> new Family(help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("指标类型冲突: " + name);
+        }
+        return family.series.computeIfAbsent(formatLabels(labels), key -> series);
+    }
+
+    public static synchronized String render() {
+        StringBuilder out = new StringBuilder(8192);
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Series> s : family.series.entrySet()) {
+                s.getValue().write(out, name, s.getKey());
+            }
+        }
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String extra, long value) {
+        out.append(name).append(braces(labels, extra)).append(' ').append(value).append('\n');
+    }
+
+    private static String braces(String labels, String extra) {
+        if (labels.isEmpty() && extra == null) {
+            return "";
+        }
+        if (labels.isEmpty()) {
+            return "{" + extra + "}";
+        }
+        return extra == null ? "{" + labels + "}" : "{" + labels + "," + extra + "}";
+    }
+
+    private static String formatLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("标签必须成对出现");
+        }
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"")
+                .append(labels[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                .append('"');
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,258 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+// 流式解析 multipart/form-data：逐段读取分段头，分段内容以 InputStream 边读边交给调用方，
+// 整个请求体不会缓存在内存中（只占用一个固定大小的缓冲区）
+public class MultipartReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_BYTES = 8 * 1024;
+
+    private final InputStream in;
+    // 分隔符为 "\r\n--" + boundary；缓冲区预置 "\r\n"，使第一个边界也能按同一规则匹配
+    private final byte[] delimiter;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private boolean finished;
+    private PartInputStream current;
+
+    public static final class Part {
+        public final String name;
+        public final String filename;
+        public final String contentType;
+        public final InputStream body;
+
+        Part(String name, String filename, String contentType, InputStream body) {
+            this.name = name;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    public MultipartReader(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        buf[0] = '\r';
+        buf[1] = '\n';
+        limit = 2;
+    }
+
+    // 从 Content-Type 中取出 boundary，不是 multipart/form-data 时返回 null
+    public static String boundaryOf(String contentType) {
+        if (contentType == null || !contentType.toLowerCase().startsWith("multipart/form-data")) {
+            return null;
+        }
+        for (String param : contentType.split(";")) {
+            String p = param.trim();
+            if (p.regionMatches(true, 0, "boundary=", 0, 9)) {
+                String boundary = p.substring(9);
+                if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+                return boundary.isEmpty() || boundary.length() > 70 ? null : boundary;
+            }
+        }
+        return null;
+    }
+
+    // 读取下一个分段，没有更多分段时返回 null；未读完的上一个分段会被跳过
+    public Part next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        // 首次调用时跳过前导内容，之后跳过上一个分段的剩余内容
+        PartInputStream previous = current != null ? current : new PartInputStream();
+        previous.drain();
+
+        if (!ensure(2)) {
+            throw new IOException("请求体不完整");
+        }
+        if (buf[pos] == '-' && buf[pos + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        // 边界行的剩余部分（通常只有 CRLF）
+        readLine();
+
+        String name = null;
+        String filename = null;
+        String contentType = null;
+        int headerBytes = 0;
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            headerBytes += line.length();
+            if (headerBytes > MAX_HEADER_BYTES) {
+                throw new IOException("分段头过长");
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (key.equalsIgnoreCase("Content-Disposition")) {
+                name = dispositionParam(value, "name");
+                filename = dispositionParam(value, "filename");
+            } else if (key.equalsIgnoreCase("Content-Type")) {
+                contentType = value;
+            }
+        }
+        current = new PartInputStream();
+        return new Part(name, filename, contentType, current);
+    }
+
+    // 读取一行（不含行尾 CRLF）
+    private String readLine() throws IOException {
+        int scanned = 0;
+        while (true) {
+            int lf = indexOf((byte) '\n', pos + scanned, limit);
+            if (lf >= 0) {
+                int end = lf > pos && buf[lf - 1] == '\r' ? lf - 1 : lf;
+                String line = new String(buf, pos, end - pos, StandardCharsets.UTF_8);
+                pos = lf + 1;
+                return line;
+            }
+            scanned = limit - pos;
+            if (scanned >= MAX_HEADER_BYTES) {
+                throw new IOException("分段头过长");
+            }
+            if (!fill()) {
+                throw new IOException("请求体不完整");
+            }
+        }
+    }
+
+    private static String dispositionParam(String disposition, String param) {
+        for (String part : disposition.split(";")) {
+            String p = part.trim();
+            int eq = p.indexOf('=');
+            if (eq > 0 && p.substring(0, eq).trim().equalsIgnoreCase(param)) {
+                String value = p.substring(eq + 1).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private int indexOf(byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOfDelimiter(int to) {
+        int last = to - delimiter.length;
+        outer:
+        for (int i = pos; i <= last; i++) {
+            for (int j = 0; j < delimiter.length; j++) {
+                if (buf[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private void compact() {
+        if (pos > 0) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos = 0;
+        }
+    }
+
+    // 再读入一批数据，流已结束时返回 false
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        compact();
+        if (limit == buf.length) {
+            return true;
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+
+    // 保证缓冲区中至少有 n 个未读字节
+    private boolean ensure(int n) throws IOException {
+        while (limit - pos < n) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 单个分段的内容：读到分隔符为止，分隔符本身被消费掉
+    private final class PartInputStream extends InputStream {
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (limit - pos < delimiter.length * 2) {
+                ensure(delimiter.length * 2);
+            }
+            // 只在本次可返回的范围内查找分隔符
+            int to = Math.min(limit, pos + len + delimiter.length - 1);
+            int at = indexOfDelimiter(to);
+            int available;
+            if (at >= 0) {
+                available = at - pos;
+                if (available == 0) {
+                    pos += delimiter.length;
+                    done = true;
+                    return -1;
+                }
+            } else {
+                if (eof && limit - pos < delimiter.length) {
+                    throw new IOException("请求体不完整");
+                }
+                // 末尾可能是分隔符的前半段，保留到下次判断
+                available = to - pos - (delimiter.length - 1);
+            }
+            int n = Math.min(len, available);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        void drain() throws IOException {
+            byte[] skip = new byte[8192];
+            while (read(skip, 0, skip.length) >= 0) {
+                // 丢弃
+            }
+        }
+    }
+}
@@ -2,17 +2,155 @@ package util;
 
 import org.mindrot.jbcrypt.BCrypt;
 
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// BCrypt 运算放在独立的有界线程池中执行，避免登录高峰占满 Jetty 工作线程和所有 CPU
 public class PasswordUtil {
-    
+
+    private static final int WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_CAPACITY = WORKERS * Integer.getInteger("bcrypt.queuePerWorker", 8);
+    // 排队等待结果的上限，超时同样视为繁忙
+    private static final long MAX_WAIT_MS = Long.getLong("bcrypt.maxWaitMs", 5000L);
+
+    // 校准参数：在 [MIN_COST, MAX_COST] 中选出单次哈希耗时不超过目标值的最大 cost
+    private static final int MIN_COST = 10;
+    private static final int MAX_COST = 14;
+    private static final long TARGET_MS = Long.getLong("bcrypt.targetMs", 250L);
+
+    private static volatile int cost = Integer.getInteger("bcrypt.cost", MIN_COST);
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    // 运算耗时只统计 BCrypt 本身，不含排队时间
+    private static final Metrics.Histogram hashTime = Metrics.histogram("bcrypt_seconds", "BCrypt 运算耗时", "op", "hash");
+    private static final Metrics.Histogram checkTime = Metrics.histogram("bcrypt_seconds", "BCrypt 运算耗时", "op", "check");
+    private static final Metrics.Counter rejected = Metrics.counter("bcrypt_rejected_total", "队列已满或等待超时而拒绝的次数");
+
+    static {
+        Metrics.gauge("bcrypt_queue_length", "等待执行的 BCrypt 运算数", () -> executor.getQueue().size());
+    }
+
     public static String hashPassword(String plainPassword) {
-        return BCrypt.hashpw(plainPassword, BCrypt.gensalt());
+        return await(submit(() -> hash(plainPassword)));
     }
-    
+
     public static boolean checkPassword(String plainPassword, String hashedPassword) {
+        return await(submit(() -> {
+            long start = System.nanoTime();
+            try {
+                return BCrypt.checkpw(plainPassword, hashedPassword);
+            } catch (Exception e) {
+                return false;
+            } finally {
+                checkTime.recordSince(start);
+            }
+        }));
+    }
+
+    // 批量导入用：在公共 ForkJoin 池上按 CPU 核数并行哈希，结果顺序与输入一致；不经过请求使用的有界线程池
+    public static List<String> hashPasswords(List<String> plainPasswords) {
+        return plainPasswords.parallelStream().map(PasswordUtil::hash).collect(Collectors.toList());
+    }
+
+    // 后台重新哈希（用于登录时升级旧 cost 的密码），线程池繁忙时直接放弃，下次登录再试
+    public static void hashPasswordAsync(String plainPassword, Consumer<String> onHashed) {
+        try {
+            executor.execute(() -> onHashed.accept(hash(plainPassword)));
+        } catch (RejectedExecutionException e) {
+            // 忽略
+        }
+    }
+
+    private static String hash(String plainPassword) {
+        long start = System.nanoTime();
         try {
-            return BCrypt.checkpw(plainPassword, hashedPassword);
-        } catch (Exception e) {
-            return false;
+            return BCrypt.hashpw(plainPassword, BCrypt.gensalt(cost));
+        } finally {
+            hashTime.recordSince(start);
         }
     }
-}
\ No newline at end of file
+
+    // 已存储的哈希 cost 低于当前 cost 时需要升级
+    public static boolean needsRehash(String hashedPassword) {
+        return costOf(hashedPassword) < cost;
+    }
+
+    public static int currentCost() {
+        return cost;
+    }
+
+    // 启动时校准 cost：逐级测量单次哈希耗时，选出不超过目标耗时的最大 cost
+    public static void calibrate() {
+        if (Integer.getInteger("bcrypt.cost") != null) {
+            System.out.println("BCrypt cost 已固定为: " + cost);
+            return;
+        }
+        // 预热一次，避免首轮测量包含 JIT 编译时间
+        BCrypt.hashpw("calibration", BCrypt.gensalt(MIN_COST));
+
+        int chosen = MIN_COST;
+        for (int c = MIN_COST; c <= MAX_COST; c++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", BCrypt.gensalt(c));
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (elapsedMs > TARGET_MS) {
+                break;
+            }
+            chosen = c;
+            // 每升一级耗时翻倍，下一级必然超标时提前结束
+            if (elapsedMs * 2 > TARGET_MS) {
+                break;
+            }
+        }
+        cost = chosen;
+        System.out.println("BCrypt cost 校准完成: " + cost + "（目标 " + TARGET_MS + "ms）");
+    }
+
+    private static <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.inc();
+            throw new ServerBusyException("密码运算队列已满", e);
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.inc();
+            throw new ServerBusyException("密码运算等待超时", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServerBusyException("密码运算被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static int costOf(String hashedPassword) {
+        // 格式: $2a$10$...
+        try {
+            return Integer.parseInt(hashedPassword.substring(4, 6));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "bcrypt-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return new ThreadPoolExecutor(WORKERS, WORKERS, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), factory, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
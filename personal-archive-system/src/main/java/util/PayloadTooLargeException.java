@@ -0,0 +1,9 @@
+package util;
+
+// 请求体超过允许的大小时抛出，路由层应返回 413
+public class PayloadTooLargeException extends RuntimeException {
+
+    public PayloadTooLargeException(String message) {
+        super(message);
+    }
+}
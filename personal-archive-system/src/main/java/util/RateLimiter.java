@@ -0,0 +1,115 @@
+package util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 滑动窗口限流：每个键保存当前和上一个固定窗口的计数，上一窗口按未过去的比例折算，近似滑动窗口。
+// 键按哈希分到多个分段，每段一把锁、一个按访问顺序淘汰的 LRU 表，内存有上限且冷键会被自动挤出
+public class RateLimiter {
+
+    private static final int STRIPES = 64;
+
+    private final int limit;
+    private final long windowMillis;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private static final class Window {
+        long start;
+        int current;
+        int previous;
+    }
+
+    private static final class Stripe extends LinkedHashMap<String, Window> {
+        private final int maxKeys;
+
+        Stripe(int maxKeys) {
+            super(16, 0.75f, true);
+            this.maxKeys = maxKeys;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Window> eldest) {
+            return size() > maxKeys;
+        }
+    }
+
+    public RateLimiter(int limit, long windowMillis, int maxKeys) {
+        this.limit = limit;
+        this.windowMillis = windowMillis;
+        int perStripe = Math.max(16, maxKeys / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    // 从系统属性读取 "次数/秒数" 形式的配置，如 -Dratelimit.login.ip=20/60；次数为 0 表示不限流（返回 null）
+    public static RateLimiter fromProperty(String property, String defaultSpec, int maxKeys) {
+        String spec = System.getProperty(property, defaultSpec);
+        try {
+            return parse(spec, maxKeys);
+        } catch (NumberFormatException e) {
+            System.err.println("限流配置格式错误 " + property + "=" + spec + "，使用默认值 " + defaultSpec);
+            return parse(defaultSpec, maxKeys);
+        }
+    }
+
+    private static RateLimiter parse(String spec, int maxKeys) {
+        String[] parts = spec.split("/");
+        int limit = Integer.parseInt(parts[0].trim());
+        long seconds = parts.length > 1 ? Long.parseLong(parts[1].trim()) : 60;
+        if (limit <= 0 || seconds <= 0) {
+            return null;
+        }
+        return new RateLimiter(limit, seconds * 1000, maxKeys);
+    }
+
+    // 放行时计数并返回 0，否则返回建议的重试等待秒数
+    public long acquire(String key) {
+        return acquire(key, System.currentTimeMillis());
+    }
+
+    long acquire(String key, long now) {
+        int h = key.hashCode();
+        Stripe stripe = stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+        synchronized (stripe) {
+            Window window = stripe.get(key);
+            if (window == null) {
+                window = new Window();
+                window.start = now - now % windowMillis;
+                stripe.put(key, window);
+            }
+            roll(window, now);
+
+            long elapsed = now - window.start;
+            double previousWeight = 1.0 - (double) elapsed / windowMillis;
+            if (window.previous * previousWeight + window.current + 1 <= limit) {
+                window.current++;
+                return 0;
+            }
+            return retryAfterSeconds(window, elapsed);
+        }
+    }
+
+    private void roll(Window window, long now) {
+        long start = now - now % windowMillis;
+        if (start != window.start) {
+            // 只相隔一个窗口时本窗口变为上一窗口，更久则清零
+            window.previous = start - window.start == windowMillis ? window.current : 0;
+            window.current = 0;
+            window.start = start;
+        }
+    }
+
+    private long retryAfterSeconds(Window window, long elapsed) {
+        long waitMillis;
+        if (window.current + 1 > limit || window.previous == 0) {
+            // 本窗口已满，至少要等到下一个窗口
+            waitMillis = windowMillis - elapsed;
+        } else {
+            // 等上一窗口的折算值降到剩余额度以内
+            double needed = 1.0 - (double) (limit - 1 - window.current) / window.previous;
+            waitMillis = (long) Math.ceil(needed * windowMillis) - elapsed;
+        }
+        return Math.max(1, (waitMillis + 999) / 1000);
+    }
+}
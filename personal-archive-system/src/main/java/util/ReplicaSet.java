@@ -0,0 +1,107 @@
+package util;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// 只读副本：每个副本一个只读连接池，轮询选择健康的副本；
+// 后台线程定期检查连接，取连接失败的副本立即标记为不可用，直到下次检查恢复
+final class ReplicaSet {
+
+    private static final long CHECK_INTERVAL_SECONDS = Long.getLong("db.replica.checkSeconds", 5L);
+
+    private static final class Replica {
+        final HikariDataSource dataSource;
+        volatile boolean healthy = true;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    // urls 为空白分隔的 JDBC 地址（地址本身可能含逗号，如 MySQL 多主机写法），账号默认与主库相同
+    ReplicaSet(String urls, String user, String password, int poolSize) {
+        for (String url : urls.trim().split("\\s+")) {
+            int index = replicas.size();
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-" + index);
+            config.setJdbcUrl(url);
+            config.setUsername(user);
+            config.setPassword(password);
+            config.setReadOnly(true);
+            config.setMaximumPoolSize(poolSize);
+            config.setMinimumIdle(Math.min(2, poolSize));
+            // 副本不可用时尽快退回主库，也不因副本宕机而无法启动
+            config.setConnectionTimeout(Long.getLong("db.replica.connectionTimeoutMs", 1000L));
+            config.setInitializationFailTimeout(-1);
+            DatabaseUtil.configureDriver(config, url);
+            Replica replica = new Replica(new HikariDataSource(config));
+            replicas.add(replica);
+            Metrics.gauge("db_replica_up", "只读副本是否可用", () -> replica.healthy ? 1 : 0,
+                "replica", String.valueOf(index));
+        }
+
+        ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-health");
+            t.setDaemon(true);
+            return t;
+        });
+        checker.scheduleWithFixedDelay(this::checkAll, 0, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    boolean isEmpty() {
+        return replicas.isEmpty();
+    }
+
+    // 从下一个健康的副本取连接；全部不可用时返回 null，由调用方改用主库
+    Connection getConnection() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (!replica.healthy) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                markDown(replica, e);
+            }
+        }
+        return null;
+    }
+
+    private void checkAll() {
+        for (Replica replica : replicas) {
+            try (Connection conn = replica.dataSource.getConnection()) {
+                if (!conn.isValid(2)) {
+                    throw new SQLException("连接校验失败");
+                }
+                if (!replica.healthy) {
+                    replica.healthy = true;
+                    System.out.println("只读副本已恢复: " + replica.dataSource.getPoolName());
+                }
+            } catch (SQLException | RuntimeException e) {
+                markDown(replica, e);
+            }
+        }
+    }
+
+    private static void markDown(Replica replica, Exception e) {
+        if (replica.healthy) {
+            replica.healthy = false;
+            System.err.println("只读副本不可用，读请求改走主库: " + replica.dataSource.getPoolName() + ", " + e.getMessage());
+        }
+    }
+}
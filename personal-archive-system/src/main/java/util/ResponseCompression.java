@@ -0,0 +1,26 @@
+package util;
+
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
+
+// JSON 响应超过阈值时按 Accept-Encoding 用 gzip 压缩（对接口直接写入的输出流同样生效，包括流式输出的列表）。
+// 只处理 application/json：静态资源已预压缩，照片本身已是压缩格式
+public class ResponseCompression {
+
+    private static final int MIN_BYTES = Integer.getInteger("gzip.minBytes", 1024);
+    private static final int LEVEL = Integer.getInteger("gzip.level", 6);
+
+    // 须在注册任何路由之前调用
+    public static void install() {
+        JettyHandlers.wrap(handler -> {
+            GzipHandler gzip = new GzipHandler();
+            gzip.setMinGzipSize(MIN_BYTES);
+            gzip.setCompressionLevel(LEVEL);
+            gzip.setIncludedMimeTypes("application/json");
+            gzip.setIncludedMethods("GET", "POST", "PUT");
+            // 不按 User-Agent 排除，响应也就不必带 Vary: User-Agent
+            gzip.setExcludedAgentPatterns();
+            gzip.setHandler(handler);
+            return gzip;
+        });
+    }
+}
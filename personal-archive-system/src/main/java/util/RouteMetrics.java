@@ -0,0 +1,109 @@
+package util;
+
+import spark.routematch.RouteMatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// 按路由统计请求耗时与错误数：before 过滤器记下开始时间，afterAfter 过滤器按路由模板归类记录。
+// 路由模板在启动时从 Spark 读取，请求路径逐段比较，不做字符串切分，记录时不分配对象
+public class RouteMetrics {
+
+    private static final ThreadLocal<long[]> startNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    private static volatile Entry[] entries = new Entry[0];
+    private static volatile Entry other;
+
+    private static final class Entry {
+        final String method;
+        final String[] segments;
+        final Metrics.Histogram latency;
+        final Metrics.Counter clientErrors;
+        final Metrics.Counter serverErrors;
+
+        Entry(String method, String path) {
+            this.method = method;
+            this.segments = path.equals("*") ? new String[] {"*"} : path.substring(1).split("/", -1);
+            this.latency = Metrics.histogram("http_request_duration_seconds", "请求处理耗时",
+                "method", method, "route", path);
+            this.clientErrors = Metrics.counter("http_request_errors_total", "按状态码类别统计的错误响应数",
+                "method", method, "route", path, "status", "4xx");
+            this.serverErrors = Metrics.counter("http_request_errors_total", "按状态码类别统计的错误响应数",
+                "method", method, "route", path, "status", "5xx");
+        }
+    }
+
+    // 路由全部注册完后调用；过滤器不计入
+    public static void register(List<RouteMatch> routes) {
+        List<Entry> list = new ArrayList<>();
+        for (RouteMatch route : routes) {
+            String method = route.getHttpMethod().name().toUpperCase();
+            if (method.startsWith("BEFORE") || method.startsWith("AFTER")) {
+                continue;
+            }
+            list.add(new Entry(method, route.getMatchUri()));
+        }
+        other = new Entry("OTHER", "other");
+        entries = list.toArray(new Entry[0]);
+    }
+
+    public static void start() {
+        startNanos.get()[0] = System.nanoTime();
+    }
+
+    public static void finish(String method, String path, int status) {
+        long[] start = startNanos.get();
+        if (start[0] == 0 || other == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start[0];
+        start[0] = 0;
+
+        Entry entry = match(method, path);
+        entry.latency.record(elapsed);
+        if (status >= 500) {
+            entry.serverErrors.inc();
+        } else if (status >= 400) {
+            entry.clientErrors.inc();
+        }
+    }
+
+    // 按注册顺序匹配，与 Spark 选路由的规则一致；HEAD 请求由 GET 路由处理
+    private static Entry match(String method, String path) {
+        String effective = "HEAD".equals(method) ? "GET" : method;
+        for (Entry entry : entries) {
+            if (entry.method.equals(effective) && matches(entry.segments, path)) {
+                return entry;
+            }
+        }
+        return other;
+    }
+
+    // 模板段为 ":name" 时匹配任意非空段，"*" 匹配剩余全部路径
+    private static boolean matches(String[] segments, String path) {
+        int pos = 0;
+        int length = path.length();
+        for (String segment : segments) {
+            if (segment.equals("*")) {
+                return true;
+            }
+            if (pos >= length || path.charAt(pos) != '/') {
+                return false;
+            }
+            int begin = pos + 1;
+            int end = path.indexOf('/', begin);
+            if (end < 0) {
+                end = length;
+            }
+            if (segment.startsWith(":")) {
+                if (end == begin) {
+                    return false;
+                }
+            } else if (end - begin != segment.length() || !path.regionMatches(begin, segment, 0, segment.length())) {
+                return false;
+            }
+            pos = end;
+        }
+        return pos == length;
+    }
+}
@@ -0,0 +1,13 @@
+package util;
+
+// 服务端资源耗尽（如哈希线程池队列已满）时抛出，路由层应返回 503
+public class ServerBusyException extends RuntimeException {
+
+    public ServerBusyException(String message) {
+        super(message);
+    }
+
+    public ServerBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
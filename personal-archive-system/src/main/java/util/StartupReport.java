@@ -0,0 +1,47 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+// 启动耗时报告：记录各阶段耗时（阶段可能在不同线程中并行执行），启动完成后打印并作为指标导出，
+// 便于对比每次发布的冷启动时间
+public class StartupReport {
+
+    private static long mainStarted;
+
+    private static final List<String> phases = new ArrayList<>();
+    private static final List<Long> durations = new ArrayList<>();
+
+    // main 的第一行调用
+    public static void start() {
+        mainStarted = System.nanoTime();
+    }
+
+    // 用法：long t = System.nanoTime(); ...; StartupReport.record("阶段", t);
+    public static synchronized void record(String phase, long startNanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        phases.add(phase);
+        durations.add(millis);
+        Metrics.gauge("startup_phase_milliseconds", "启动各阶段耗时", () -> millis, "phase", phase);
+    }
+
+    // 服务器就绪后调用一次
+    public static synchronized void print() {
+        long mainMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mainStarted);
+        // JVM 启动到 main 执行之间主要是类加载（CDS 归档缩短的就是这一段）
+        long jvmMillis = Math.max(0, ManagementFactory.getRuntimeMXBean().getUptime() - mainMillis);
+
+        StringJoiner details = new StringJoiner("，", "（", "）");
+        details.add("JVM " + jvmMillis + "ms");
+        for (int i = 0; i < phases.size(); i++) {
+            details.add(phases.get(i) + " " + durations.get(i) + "ms");
+        }
+        System.out.println("启动耗时: " + mainMillis + "ms" + details);
+
+        Metrics.gauge("startup_milliseconds", "main 开始到服务器就绪的耗时", () -> mainMillis);
+        Metrics.gauge("startup_jvm_milliseconds", "JVM 启动到 main 开始的耗时", () -> jvmMillis);
+    }
+}
@@ -0,0 +1,300 @@
+package util;
+
+import spark.Request;
+import spark.Response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+// 静态资源：启动时读入类路径下的目录，非 HTML 文件按内容哈希生成带指纹的文件名，并改写 HTML/CSS 中的引用；
+// 文本类资源预先压缩好 gzip 版本。带指纹的地址永久缓存，HTML 和原始地址每次用 ETag 协商
+public class StaticAssets {
+
+    private static final String CACHE_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String CACHE_REVALIDATE = "no-cache";
+
+    private static final Pattern HTML_REF = Pattern.compile("((?:src|href)\\s*=\\s*\")([^\"]+)(\")");
+    private static final Pattern CSS_REF = Pattern.compile("(url\\(\\s*['\"]?)([^'\")]+)(['\"]?\\s*\\))");
+
+    private static final Map<String, Asset> assets = new HashMap<>();
+
+    private static final class Asset {
+        final byte[] identity;
+        final byte[] gzip;
+        final String contentType;
+        final String etag;
+        final String cacheControl;
+
+        Asset(byte[] identity, byte[] gzip, String contentType, String etag, String cacheControl) {
+            this.identity = identity;
+            this.gzip = gzip;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.cacheControl = cacheControl;
+        }
+    }
+
+    // 在注册路由之前调用；directory 形如 "/public"
+    public static void load(String directory) {
+        Map<String, byte[]> files = new TreeMap<>();
+        try {
+            readAll(directory, files);
+        } catch (IOException | URISyntaxException e) {
+            System.err.println("读取静态资源失败: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        // 先给图片等普通文件加指纹，再改写并处理 CSS，最后改写 HTML
+        Map<String, String> fingerprinted = new HashMap<>();
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            String path = file.getKey();
+            if (!path.endsWith(".html") && !path.endsWith(".css")) {
+                fingerprinted.put(path, fingerprint(path, file.getValue()));
+            }
+        }
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            if (file.getKey().endsWith(".css")) {
+                file.setValue(rewrite(file.getKey(), file.getValue(), CSS_REF, fingerprinted));
+                fingerprinted.put(file.getKey(), fingerprint(file.getKey(), file.getValue()));
+            }
+        }
+
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            String path = file.getKey();
+            byte[] content = file.getValue();
+            if (path.endsWith(".html")) {
+                content = rewrite(path, content, HTML_REF, fingerprinted);
+                register(path, content, CACHE_REVALIDATE);
+            } else {
+                register(fingerprinted.get(path), content, CACHE_IMMUTABLE);
+                // 原始地址仍可访问（如脚本中拼出的地址），但需要协商缓存
+                register(path, content, CACHE_REVALIDATE);
+            }
+        }
+        if (assets.containsKey("/index.html")) {
+            assets.put("/", assets.get("/index.html"));
+        }
+        System.out.println("静态资源加载完成: " + files.size() + " 个文件");
+    }
+
+    // 命中静态资源时写出响应并返回 true
+    public static boolean serve(Request request, Response response) throws IOException {
+        Asset asset = assets.get(request.pathInfo());
+        if (asset == null) {
+            return false;
+        }
+        boolean gzip = asset.gzip != null && acceptsGzip(request.headers("Accept-Encoding"));
+        String etag = gzip ? asset.etag.substring(0, asset.etag.length() - 1) + "-gz\"" : asset.etag;
+
+        response.type(asset.contentType);
+        response.header("Cache-Control", asset.cacheControl);
+        response.header("ETag", etag);
+        if (asset.gzip != null) {
+            response.header("Vary", "Accept-Encoding");
+        }
+        String ifNoneMatch = request.headers("If-None-Match");
+        if (ifNoneMatch != null && ifNoneMatch.contains(etag)) {
+            response.status(304);
+            return true;
+        }
+
+        byte[] body = gzip ? asset.gzip : asset.identity;
+        if (gzip) {
+            response.header("Content-Encoding", "gzip");
+        }
+        response.raw().setContentLength(body.length);
+        // 直接写出并提交响应，避免 Spark 再按 Content-Encoding 压缩一次
+        OutputStream out = response.raw().getOutputStream();
+        out.write(body);
+        out.flush();
+        return true;
+    }
+
+    private static void register(String path, byte[] content, String cacheControl) {
+        String contentType = contentType(path);
+        byte[] gzip = isCompressible(contentType) ? gzip(content) : null;
+        if (gzip != null && gzip.length >= content.length) {
+            gzip = null;
+        }
+        String etag = "\"" + sha256Hex(content).substring(0, 16) + "\"";
+        assets.put(path, new Asset(content, gzip, contentType, etag, cacheControl));
+    }
+
+    // style.css -> style.1a2b3c4d5e.css
+    private static String fingerprint(String path, byte[] content) {
+        String hash = sha256Hex(content).substring(0, 10);
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        if (dot <= slash + 1) {
+            return path + "." + hash;
+        }
+        return path.substring(0, dot) + "." + hash + path.substring(dot);
+    }
+
+    // 把引用中指向已加指纹文件的部分替换为新文件名，引用的写法（相对/绝对）保持不变
+    private static byte[] rewrite(String path, byte[] content, Pattern pattern, Map<String, String> fingerprinted) {
+        String text = new String(content, StandardCharsets.UTF_8);
+        Matcher matcher = pattern.matcher(text);
+        StringBuilder out = new StringBuilder(text.length() + 256);
+        boolean changed = false;
+        while (matcher.find()) {
+            String ref = matcher.group(2);
+            String target = resolve(path, ref);
+            String replacement = matcher.group(0);
+            if (target != null && fingerprinted.containsKey(target)) {
+                String cleanRef = stripQuery(ref);
+                String newName = fingerprinted.get(target).substring(target.lastIndexOf('/') + 1);
+                String newRef = cleanRef.substring(0, cleanRef.lastIndexOf('/') + 1) + newName + ref.substring(cleanRef.length());
+                replacement = matcher.group(1) + newRef + matcher.group(3);
+                changed = true;
+            }
+            matcher.appendReplacement(out, Matcher.quoteReplacement(replacement));
+        }
+        if (!changed) {
+            return content;
+        }
+        matcher.appendTail(out);
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // 把相对引用解析为站内绝对路径；外部地址、模板表达式等返回 null
+    private static String resolve(String from, String ref) {
+        if (ref.isEmpty() || ref.startsWith("#") || ref.startsWith("//") || ref.contains("://")
+                || ref.startsWith("data:") || ref.contains("${")) {
+            return null;
+        }
+        try {
+            String resolved = URI.create(from).resolve(stripQuery(ref)).getPath();
+            return resolved == null || !resolved.startsWith("/") ? null : resolved;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String stripQuery(String ref) {
+        int end = ref.length();
+        int q = ref.indexOf('?');
+        if (q >= 0) {
+            end = q;
+        }
+        int hash = ref.indexOf('#');
+        if (hash >= 0 && hash < end) {
+            end = hash;
+        }
+        return ref.substring(0, end);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            if (tokens[0].trim().equalsIgnoreCase("gzip")) {
+                return tokens.length < 2 || !tokens[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static void readAll(String directory, Map<String, byte[]> files) throws IOException, URISyntaxException {
+        URL url = StaticAssets.class.getResource(directory);
+        if (url == null) {
+            throw new IOException("找不到静态资源目录 " + directory);
+        }
+        URI uri = url.toURI();
+        if ("jar".equals(uri.getScheme())) {
+            try (FileSystem fs = FileSystems.newFileSystem(uri, Collections.emptyMap())) {
+                walk(fs.getPath(directory), files);
+            }
+        } else {
+            walk(Paths.get(uri), files);
+        }
+    }
+
+    private static void walk(Path root, Map<String, byte[]> files) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) paths.filter(Files::isRegularFile)::iterator) {
+                String relative = root.relativize(file).toString().replace('\\', '/');
+                files.put("/" + relative, Files.readAllBytes(file));
+            }
+        }
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 3 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            out.write(content);
+        } catch (IOException e) {
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    private static boolean isCompressible(String contentType) {
+        return contentType.startsWith("text/") || contentType.startsWith("application/javascript")
+            || contentType.startsWith("application/json") || contentType.startsWith("image/svg+xml");
+    }
+
+    private static String contentType(String path) {
+        String ext = path.substring(path.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        switch (ext) {
+            case "html":
+                return "text/html; charset=utf-8";
+            case "css":
+                return "text/css; charset=utf-8";
+            case "js":
+                return "application/javascript; charset=utf-8";
+            case "map":
+            case "json":
+                return "application/json; charset=utf-8";
+            case "scss":
+            case "txt":
+                return "text/plain; charset=utf-8";
+            case "svg":
+                return "image/svg+xml";
+            case "png":
+                return "image/png";
+            case "jpg":
+            case "jpeg":
+                return "image/jpeg";
+            case "gif":
+                return "image/gif";
+            case "webp":
+                return "image/webp";
+            case "ico":
+                return "image/x-icon";
+            case "woff2":
+                return "font/woff2";
+            default:
+                return "application/octet-stream";
+        }
+    }
+
+    private static String sha256Hex(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
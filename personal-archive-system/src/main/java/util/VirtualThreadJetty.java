@@ -0,0 +1,83 @@
+package util;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import spark.embeddedserver.jetty.JettyHandler;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// 虚拟线程模式：Jetty 线程池只负责收发连接和分派，每个请求转为异步后在独立的虚拟线程上执行 Spark 的路由，
+// 阻塞在 JDBC、BCrypt 结果等待上时不再占用平台线程。须在注册任何路由之前调用 install()。
+// 并发上限由各资源自己的闸门控制：JDBC 为 DatabaseUtil 的信号量（连接池大小），BCrypt 为按 CPU 核数设定的线程池
+public class VirtualThreadJetty {
+
+    private static ExecutorService executor;
+
+    public static synchronized void install() {
+        if (executor != null) {
+            return;
+        }
+        // MySQL 驱动在 synchronized 块内做网络 I/O，执行 JDBC 的虚拟线程会占住载体线程；
+        // 载体线程数在 CPU 核数之外再加上 JDBC 并发上限，保证其余请求总有载体可用。须在创建第一个虚拟线程之前设置；
+        // 上限只从系统属性计算，不在这里初始化连接池
+        if (System.getProperty("jdk.virtualThreadScheduler.parallelism") == null) {
+            int parallelism = Runtime.getRuntime().availableProcessors() + DatabaseLimits.maxConcurrent();
+            System.setProperty("jdk.virtualThreadScheduler.parallelism", String.valueOf(parallelism));
+            if (System.getProperty("jdk.virtualThreadScheduler.maxPoolSize") == null) {
+                System.setProperty("jdk.virtualThreadScheduler.maxPoolSize", String.valueOf(Math.max(256, parallelism)));
+            }
+        }
+        ThreadFactory factory = Thread.ofVirtual().name("request-", 0).factory();
+        executor = Executors.newThreadPerTaskExecutor(factory);
+
+        // 直接包在 Spark 的处理器外面（须先于其他包装注册）
+        JettyHandlers.wrap(Dispatcher::new);
+    }
+
+    private static final class Dispatcher extends HandlerWrapper {
+
+        Dispatcher(Handler handler) {
+            setHandler(handler);
+        }
+
+        // 请求转为异步后 Jetty 会清空分派状态，不能在虚拟线程上再走 SessionHandler 的作用域；
+        // Spark 的处理器只用到自身的过滤器（会话由 SessionManager 基于 Cookie 实现），直接调用 doHandle
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request,
+                           HttpServletResponse response) throws IOException, ServletException {
+            if (!(getHandler() instanceof JettyHandler)) {
+                super.handle(target, baseRequest, request, response);
+                return;
+            }
+            JettyHandler spark = (JettyHandler) getHandler();
+            AsyncContext async = request.startAsync();
+            // 超时由各处的阻塞调用自行控制（连接池、BCrypt 等待等）
+            async.setTimeout(0);
+            executor.execute(() -> {
+                try {
+                    spark.doHandle(target, baseRequest, request, response);
+                } catch (IOException | ServletException | RuntimeException e) {
+                    System.err.println("请求处理失败: " + e.getMessage());
+                    e.printStackTrace();
+                    if (!response.isCommitted()) {
+                        try {
+                            response.sendError(500);
+                        } catch (IOException ignored) {
+                            // 连接已断开
+                        }
+                    }
+                } finally {
+                    async.complete();
+                }
+            });
+        }
+    }
+}
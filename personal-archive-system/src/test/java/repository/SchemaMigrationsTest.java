@@ -0,0 +1,93 @@
+package repository;
+
+import org.junit.jupiter.api.Test;
+import util.TokenUtil;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class SchemaMigrationsTest {
+
+    // 与 surefire 配置的主库参数相同，但使用独立的内存库
+    private static Connection open(String name) throws SQLException {
+        return DriverManager.getConnection(System.getProperty("db.url").replace("mem:primary", "mem:" + name), "sa", "");
+    }
+
+    @Test
+    void legacyTokensAreMovedAndColumnsDropped() throws SQLException {
+        try (Connection conn = open("legacy")) {
+            try (Statement stmt = conn.createStatement()) {
+                // 引入 auth_tokens 之前的 users 表
+                stmt.execute("CREATE TABLE users (id INT AUTO_INCREMENT PRIMARY KEY, " +
+                    "email VARCHAR(255) UNIQUE NOT NULL, password_hash VARCHAR(255) NOT NULL, " +
+                    "username VARCHAR(100), is_verified BOOLEAN DEFAULT FALSE, " +
+                    "verification_code VARCHAR(100), verification_expires DATETIME, " +
+                    "reset_token VARCHAR(100), reset_expires DATETIME)");
+            }
+            LocalDateTime now = LocalDateTime.now();
+            insertUser(conn, 1, "pending-verify", now.plusHours(3), null, null);
+            insertUser(conn, 2, "expired-verify", now.minusHours(1), "pending-reset", now.plusMinutes(30));
+            insertUser(conn, 3, null, null, null, null);
+
+            SchemaMigrations.migrate(conn);
+
+            assertEquals(1, tokenUser(conn, "pending-verify", "VERIFY"));
+            assertEquals(2, tokenUser(conn, "pending-reset", "RESET"));
+            assertEquals(0, tokenUser(conn, "expired-verify", "VERIFY"));
+            assertEquals(2, count(conn, "SELECT COUNT(*) FROM auth_tokens"));
+            assertEquals(0, count(conn, "SELECT COUNT(*) FROM information_schema.columns " +
+                "WHERE table_name = 'users' AND column_name IN " +
+                "('verification_code', 'verification_expires', 'reset_token', 'reset_expires')"));
+        }
+    }
+
+    @Test
+    void freshDatabaseMigratesToLatest() throws SQLException {
+        try (Connection conn = open("fresh")) {
+            assertEquals(SchemaMigrations.latestVersion(), SchemaMigrations.migrate(conn));
+            assertEquals(0, SchemaMigrations.migrate(conn));
+            // 另一个实例已执行过最后一个版本但尚未更新版本号：重复执行不报错
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("UPDATE schema_version SET version = version - 1");
+            }
+            assertEquals(1, SchemaMigrations.migrate(conn));
+            assertFalse(count(conn, "SELECT COUNT(*) FROM information_schema.columns " +
+                "WHERE table_name = 'users' AND column_name = 'reset_token'") > 0);
+        }
+    }
+
+    private static void insertUser(Connection conn, int id, String code, LocalDateTime codeExpires,
+                                   String reset, LocalDateTime resetExpires) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO users (id, email, password_hash, " +
+                "verification_code, verification_expires, reset_token, reset_expires) VALUES (?, ?, 'x', ?, ?, ?, ?)")) {
+            pstmt.setInt(1, id);
+            pstmt.setString(2, "user" + id + "@example.com");
+            pstmt.setString(3, code);
+            pstmt.setTimestamp(4, codeExpires != null ? Timestamp.valueOf(codeExpires) : null);
+            pstmt.setString(5, reset);
+            pstmt.setTimestamp(6, resetExpires != null ? Timestamp.valueOf(resetExpires) : null);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static int tokenUser(Connection conn, String token, String purpose) throws SQLException {
+        Integer userId = TokenRepository.findUserId(conn, TokenUtil.sha256Hex(token), purpose, LocalDateTime.now());
+        return userId != null ? userId : 0;
+    }
+
+    private static long count(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import util.DatabaseUtil;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SearchIndexRepositoryTest {
+
+    private static final int USER = 1001;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        DatabaseUtil.withConnection(SchemaMigrations::migrate);
+        DatabaseUtil.inTransaction(conn -> {
+            SearchIndexRepository.insertTerms(conn, USER, 1, Map.of("java", 3, "并发", 1));
+            SearchIndexRepository.insertTerms(conn, USER, 2, Map.of("javascript", 1));
+            SearchIndexRepository.insertTerms(conn, USER, 3, Map.of("50%off", 1));
+            SearchIndexRepository.insertTerms(conn, USER, 4, Map.of("50xoff", 1));
+            SearchIndexRepository.insertTerms(conn, USER, 5, Map.of("a_b", 1));
+            SearchIndexRepository.insertTerms(conn, USER, 6, Map.of("axb", 1));
+            // 其他用户的同名词项不应出现在结果中
+            SearchIndexRepository.insertTerms(conn, USER + 1, 7, Map.of("java", 5));
+            return null;
+        });
+    }
+
+    private static List<Long> search(List<String> terms, boolean... prefix) throws SQLException {
+        return DatabaseUtil.withConnection(conn -> SearchIndexRepository.search(conn, USER, terms, prefix, 10, 0));
+    }
+
+    @Test
+    void overlappingPrefixesMatchTheSameTerm() throws SQLException {
+        // "ja" 与 "jav" 都只命中同一个词项 "java"/"javascript"
+        assertEquals(List.of(1L, 2L), search(List.of("ja", "jav"), true, true));
+    }
+
+    @Test
+    void exactAndPrefixTermOnSameWord() throws SQLException {
+        assertEquals(List.of(1L), search(List.of("java", "jav"), false, true));
+    }
+
+    @Test
+    void everyTermMustMatch() throws SQLException {
+        assertEquals(List.of(1L), search(List.of("jav", "并发"), true, false));
+        assertEquals(List.of(), search(List.of("javascript", "并发"), false, false));
+    }
+
+    @Test
+    void resultsAreOrderedByWeight() throws SQLException {
+        assertEquals(List.of(1L, 2L), search(List.of("j"), true));
+    }
+
+    @Test
+    void likeWildcardsInPrefixAreLiteral() throws SQLException {
+        assertEquals(List.of(3L), search(List.of("50%"), true));
+        assertEquals(List.of(5L), search(List.of("a_"), true));
+        assertEquals(List.of(), search(List.of("a!"), true));
+    }
+
+    @Test
+    void escapeLike() {
+        assertEquals("50!%", SearchIndexRepository.escapeLike("50%"));
+        assertEquals("a!_b!!", SearchIndexRepository.escapeLike("a_b!"));
+    }
+}
@@ -0,0 +1,55 @@
+package service;
+
+import dto.AchievementRequest;
+import dto.SearchResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import repository.SchemaMigrations;
+import repository.UserRepository;
+import util.DatabaseUtil;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchServiceTest {
+
+    private static int userId;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        DatabaseUtil.withConnection(SchemaMigrations::migrate);
+        userId = DatabaseUtil.withConnection(conn ->
+            UserRepository.insert(conn, "search-test@example.com", "x", "search"));
+        AchievementService.createAchievement(userId,
+            new AchievementRequest("Kotlin 入门", null, "2025-01-01", List.of("kotlin"), null));
+    }
+
+    // 测试中的副本是空库，搜索改读主库（即刚写入后的读己之写）
+    @BeforeEach
+    void readFromPrimary() {
+        DatabaseUtil.readFromPrimary(true);
+    }
+
+    @AfterEach
+    void reset() {
+        DatabaseUtil.readFromPrimary(false);
+    }
+
+    @Test
+    void firstPageFindsTheAchievement() throws SQLException {
+        assertEquals(1, SearchService.search(userId, "kotlin", 1, 32).items().size());
+    }
+
+    @Test
+    void hugePageDoesNotWrapAroundToTheFirstPage() throws SQLException {
+        // (page - 1) * 32 按 int 计算恰好溢出为 0
+        SearchResult result = SearchService.search(userId, "kotlin", (1 << 27) + 1, 32);
+        assertTrue(result.items().isEmpty());
+        assertTrue(SearchService.search(userId, "kotlin", Integer.MAX_VALUE, 50).items().isEmpty());
+    }
+}
@@ -0,0 +1,94 @@
+package service;
+
+import dto.AchievementRequest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import repository.Jdbc;
+import repository.PhotoRepository;
+import repository.SchemaMigrations;
+import repository.StatsRepository;
+import repository.UserRepository;
+import util.DatabaseUtil;
+import util.PayloadTooLargeException;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StatsServiceTest {
+
+    private static int userId;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        DatabaseUtil.withConnection(SchemaMigrations::migrate);
+        userId = DatabaseUtil.withConnection(conn ->
+            UserRepository.insert(conn, "stats-test@example.com", "x", "stats"));
+    }
+
+    @Test
+    void rebuildRecomputesFromAchievementsAndPhotos() throws SQLException {
+        AchievementService.createAchievement(userId,
+            new AchievementRequest("一", null, "2025-01-01", List.of("java", "sql"), null));
+        AchievementService.createAchievement(userId,
+            new AchievementRequest("二", null, "2025-06-01", List.of("java"), null));
+        AchievementService.createAchievement(userId,
+            new AchievementRequest("三", null, "2024-03-01", List.of("go"), null));
+        DatabaseUtil.inTransaction(conn -> {
+            PhotoRepository.insertPhoto(conn, "h1", 100, "image/png");
+            PhotoRepository.insertPhoto(conn, "h2", 250, "image/jpeg");
+            PhotoRepository.addOwner(conn, userId, "h1");
+            PhotoRepository.addOwner(conn, userId, "h2");
+            return null;
+        });
+
+        // 人为制造偏差
+        DatabaseUtil.withConnection(conn -> {
+            Jdbc.update(conn, "UPDATE user_stats SET total_achievements = 99, distinct_tags = 0, storage_bytes = 7 " +
+                "WHERE user_id = ?", pstmt -> pstmt.setInt(1, userId));
+            Jdbc.update(conn, "DELETE FROM user_year_counts WHERE user_id = ?", pstmt -> pstmt.setInt(1, userId));
+            return null;
+        });
+        long before = DatabaseUtil.withConnection(conn -> StatsRepository.version(conn, userId));
+
+        StatsService.rebuild(userId);
+
+        StatsRepository.Totals totals = DatabaseUtil.withConnection(conn -> StatsRepository.find(conn, userId, 2025));
+        assertEquals(3, totals.totalAchievements);
+        assertEquals(3, totals.distinctTags);
+        assertEquals(350, totals.storageBytes);
+        assertEquals(2, totals.thisYear);
+        assertEquals(before + 1, totals.version);
+        long javaCount = DatabaseUtil.withConnection(conn -> Jdbc.queryOne(conn,
+            "SELECT cnt FROM user_tag_counts WHERE user_id = ? AND tag = ?",
+            pstmt -> {
+                pstmt.setInt(1, userId);
+                pstmt.setString(2, "java");
+            }, rs -> rs.getLong(1)));
+        assertEquals(2, javaCount);
+
+        // 重建后的数字与缓存读取一致
+        assertEquals(3, StatsService.getTotals(userId).totalAchievements);
+    }
+
+    @Test
+    void storageOverQuotaIsRolledBack() throws SQLException {
+        int other = DatabaseUtil.withConnection(conn ->
+            UserRepository.insert(conn, "quota-test@example.com", "x", "quota"));
+        long quota = 1024L * 1024 * 1024;
+        DatabaseUtil.inTransaction(conn -> StatsService.onStorageAdded(conn, other, quota - 10));
+
+        assertThrows(PayloadTooLargeException.class, () ->
+            DatabaseUtil.inTransaction(conn -> StatsService.onStorageAdded(conn, other, 11)));
+        assertEquals(quota - 10, storageBytes(other));
+        // 正好用满配额是允许的
+        DatabaseUtil.inTransaction(conn -> StatsService.onStorageAdded(conn, other, 10));
+        assertEquals(quota, storageBytes(other));
+    }
+
+    private static long storageBytes(int userId) throws SQLException {
+        return DatabaseUtil.withConnection(conn -> StatsRepository.storageBytes(conn, userId));
+    }
+}
@@ -0,0 +1,108 @@
+package session;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InMemorySessionStoreTest {
+
+    private static final long HOUR = 3_600_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void snapshotRoundTrip() {
+        Path file = dir.resolve("sessions.bin");
+        long now = System.currentTimeMillis();
+
+        InMemorySessionStore store = new InMemorySessionStore(file);
+        store.save("token-a", 7, now + HOUR);
+        store.save("token-b", 8, now + 2 * HOUR);
+        store.save("token-expired", 9, now - 1000);
+        store.remove("token-b");
+        store.close();
+
+        InMemorySessionStore restored = new InMemorySessionStore(file);
+        assertEquals(1, restored.size());
+        assertEquals(7, restored.resolve("token-a", now));
+        assertNull(restored.resolve("token-b", now));
+        assertNull(restored.resolve("token-expired", now));
+        // 过期时间按秒保存
+        assertNull(restored.resolve("token-a", now + HOUR + 1000));
+    }
+
+    @Test
+    void periodicSnapshotSurvivesCrash() throws IOException {
+        Path file = dir.resolve("sessions.bin");
+        long now = System.currentTimeMillis();
+
+        InMemorySessionStore store = new InMemorySessionStore(file);
+        store.save("token-a", 7, now + HOUR);
+        store.persist();
+        // 没有新变化时不重写快照
+        Files.delete(file);
+        store.persist();
+        assertFalse(Files.exists(file));
+        store.save("token-b", 8, now + HOUR);
+        store.persist();
+
+        // 不调用 close，模拟进程被强制结束
+        InMemorySessionStore restored = new InMemorySessionStore(file);
+        assertEquals(7, restored.resolve("token-a", now));
+        assertEquals(8, restored.resolve("token-b", now));
+    }
+
+    @Test
+    void removeUserDropsAllOfTheirSessions() {
+        long now = System.currentTimeMillis();
+        InMemorySessionStore store = new InMemorySessionStore(null);
+        store.save("a1", 1, now + HOUR);
+        store.save("a2", 1, now + HOUR);
+        store.save("b1", 2, now + HOUR);
+
+        assertEquals(2, store.removeUser(1));
+        assertNull(store.resolve("a1", now));
+        assertNull(store.resolve("a2", now));
+        assertEquals(2, store.resolve("b1", now));
+    }
+
+    @Test
+    void snapshotDoesNotContainTokens() throws IOException {
+        Path file = dir.resolve("sessions.bin");
+        String token = "plain-token-value-123";
+        InMemorySessionStore store = new InMemorySessionStore(file);
+        store.save(token, 1, System.currentTimeMillis() + HOUR);
+        store.close();
+
+        String content = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        assertFalse(content.contains(token));
+        if (Files.getFileStore(file).supportsFileAttributeView("posix")) {
+            assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+        }
+    }
+
+    @Test
+    void oldFormatSnapshotIsDiscarded() throws IOException {
+        Path file = dir.resolve("sessions.bin");
+        // 旧格式：明文令牌 + 打包的过期时间与用户 id
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeUTF("old-token");
+            out.writeLong(((System.currentTimeMillis() / 1000 + 3600) << 32) | 5);
+        }
+
+        InMemorySessionStore store = new InMemorySessionStore(file);
+        assertEquals(0, store.size());
+        assertFalse(Files.exists(file));
+    }
+}
@@ -0,0 +1,72 @@
+package util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// surefire 配置了主库 jdbc:h2:mem:primary 与副本 jdbc:h2:mem:replica
+class DatabaseReplicaTest {
+
+    private static final String REPLICA = System.getProperty("db.replicas");
+    // 没有监听的端口，连接立即失败
+    private static final String DOWN = "jdbc:h2:tcp://127.0.0.1:1/mem:nope";
+
+    @AfterEach
+    void reset() {
+        DatabaseUtil.readFromPrimary(false);
+    }
+
+    private static String url(Connection conn) throws SQLException {
+        return conn.getMetaData().getURL();
+    }
+
+    @Test
+    void readsGoToReplica() throws SQLException {
+        assertTrue(DatabaseUtil.hasReplicas());
+        try (Connection conn = DatabaseUtil.getReadConnection()) {
+            assertTrue(url(conn).contains("mem:replica"), url(conn));
+        }
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            assertTrue(url(conn).contains("mem:primary"), url(conn));
+        }
+    }
+
+    @Test
+    void readYourWritesUsesPrimary() throws SQLException {
+        DatabaseUtil.readFromPrimary(true);
+        try (Connection conn = DatabaseUtil.getReadConnection()) {
+            assertTrue(url(conn).contains("mem:primary"), url(conn));
+        }
+        DatabaseUtil.readFromPrimary(false);
+        try (Connection conn = DatabaseUtil.getReadConnection()) {
+            assertTrue(url(conn).contains("mem:replica"), url(conn));
+        }
+    }
+
+    @Test
+    void unavailableReplicaIsSkipped() throws SQLException {
+        System.setProperty("db.replica.connectionTimeoutMs", "250");
+        ReplicaSet set = new ReplicaSet(DOWN + " " + REPLICA, "sa", "", 1);
+        for (int i = 0; i < 4; i++) {
+            try (Connection conn = set.getConnection()) {
+                assertNotNull(conn);
+                assertTrue(url(conn).contains("mem:replica"), url(conn));
+            }
+        }
+    }
+
+    @Test
+    void noHealthyReplicaFallsBackToPrimary() {
+        System.setProperty("db.replica.connectionTimeoutMs", "250");
+        ReplicaSet set = new ReplicaSet(DOWN, "sa", "", 1);
+        // 返回 null 时 DatabaseUtil.getReadConnection 改用主库
+        assertNull(set.getConnection());
+        assertNull(set.getConnection());
+    }
+}
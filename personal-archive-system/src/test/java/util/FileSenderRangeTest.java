@@ -0,0 +1,50 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FileSenderRangeTest {
+
+    private static final long SIZE = 100;
+
+    @Test
+    void closedRange() {
+        assertArrayEquals(new long[] {0, 9}, FileSender.parseRange("bytes=0-9", SIZE));
+        assertArrayEquals(new long[] {10, 10}, FileSender.parseRange("bytes=10-10", SIZE));
+    }
+
+    @Test
+    void openEndedRangeRunsToLastByte() {
+        assertArrayEquals(new long[] {90, 99}, FileSender.parseRange("bytes=90-", SIZE));
+    }
+
+    @Test
+    void lastIsClampedToFileSize() {
+        assertArrayEquals(new long[] {50, 99}, FileSender.parseRange("bytes=50-500", SIZE));
+    }
+
+    @Test
+    void suffixRange() {
+        assertArrayEquals(new long[] {90, 99}, FileSender.parseRange("bytes=-10", SIZE));
+        // 后缀比文件长时返回整个文件
+        assertArrayEquals(new long[] {0, 99}, FileSender.parseRange("bytes=-500", SIZE));
+    }
+
+    @Test
+    void unsatisfiableRangesReturnNull() {
+        assertNull(FileSender.parseRange("bytes=100-", SIZE));
+        assertNull(FileSender.parseRange("bytes=5-2", SIZE));
+        assertNull(FileSender.parseRange("bytes=-0", SIZE));
+        assertNull(FileSender.parseRange("bytes=0-0", 0));
+    }
+
+    @Test
+    void unsupportedFormsFallBackToFullContent() {
+        assertArrayEquals(new long[0], FileSender.parseRange("bytes=0-1,5-6", SIZE));
+        assertArrayEquals(new long[0], FileSender.parseRange("items=0-1", SIZE));
+        assertArrayEquals(new long[0], FileSender.parseRange("bytes=abc", SIZE));
+        assertArrayEquals(new long[0], FileSender.parseRange("bytes=x-1", SIZE));
+    }
+}
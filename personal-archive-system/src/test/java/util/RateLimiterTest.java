@@ -0,0 +1,62 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private static final long WINDOW = 1000;
+    // 窗口起点
+    private static final long T0 = 10_000;
+
+    @Test
+    void allowsUpToLimitWithinWindow() {
+        RateLimiter limiter = new RateLimiter(2, WINDOW, 100);
+        assertEquals(0, limiter.acquire("k", T0));
+        assertEquals(0, limiter.acquire("k", T0 + 100));
+        assertTrue(limiter.acquire("k", T0 + 200) > 0);
+        // 其他键互不影响
+        assertEquals(0, limiter.acquire("other", T0 + 200));
+    }
+
+    @Test
+    void previousWindowIsWeightedAfterRollover() {
+        RateLimiter limiter = new RateLimiter(2, WINDOW, 100);
+        limiter.acquire("k", T0);
+        limiter.acquire("k", T0 + 900);
+
+        // 刚进入下一个窗口：上一窗口的 2 次按权重 1 计入，仍然拒绝
+        assertTrue(limiter.acquire("k", T0 + WINDOW) > 0);
+        // 过了半个窗口：折算为 1 次，可以再放行 1 次
+        assertEquals(0, limiter.acquire("k", T0 + WINDOW + 500));
+        assertTrue(limiter.acquire("k", T0 + WINDOW + 500) > 0);
+    }
+
+    @Test
+    void windowsOlderThanOnePeriodAreForgotten() {
+        RateLimiter limiter = new RateLimiter(2, WINDOW, 100);
+        limiter.acquire("k", T0);
+        limiter.acquire("k", T0 + 100);
+
+        long later = T0 + 2 * WINDOW;
+        assertEquals(0, limiter.acquire("k", later));
+        assertEquals(0, limiter.acquire("k", later + 1));
+        assertTrue(limiter.acquire("k", later + 2) > 0);
+    }
+
+    @Test
+    void retryAfterPointsPastTheFullWindow() {
+        RateLimiter limiter = new RateLimiter(1, 60_000, 100);
+        long start = 600_000;
+        assertEquals(0, limiter.acquire("k", start));
+        // 本窗口已满且没有上一窗口：等到本窗口结束
+        assertEquals(50, limiter.acquire("k", start + 10_000));
+    }
+
+    @Test
+    void zeroLimitDisablesLimiter() {
+        assertEquals(null, RateLimiter.fromProperty("ratelimit.test.none", "0/60", 100));
+    }
+}